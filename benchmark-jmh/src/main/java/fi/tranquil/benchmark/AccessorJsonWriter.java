@@ -0,0 +1,75 @@
+package fi.tranquil.benchmark;
+
+import java.util.Collection;
+import java.util.Date;
+
+import fi.tranquil.benchmark.support.ModelAccessor;
+
+/**
+ * Minimal JSON writer driven by generated {@link ModelAccessor} methods. Used to measure serialization cost of
+ * generated models without pulling a JSON library into the benchmark.
+ */
+public class AccessorJsonWriter {
+
+  private AccessorJsonWriter() {
+  }
+
+  public static void write(Object value, StringBuilder out) {
+    if (value == null) {
+      out.append("null");
+    } else if (value instanceof ModelAccessor) {
+      writeModel((ModelAccessor) value, out);
+    } else if (value instanceof Collection) {
+      writeCollection((Collection<?>) value, out);
+    } else if (value instanceof Number || value instanceof Boolean) {
+      out.append(value);
+    } else if (value instanceof Date) {
+      out.append(((Date) value).getTime());
+    } else {
+      writeString(value.toString(), out);
+    }
+  }
+
+  private static void writeModel(ModelAccessor model, StringBuilder out) {
+    out.append('{');
+    for (int i = 0, l = model.getPropertyCount(); i < l; i++) {
+      if (i > 0) {
+        out.append(',');
+      }
+
+      writeString(model.getPropertyName(i), out);
+      out.append(':');
+      write(model.get(i), out);
+    }
+    out.append('}');
+  }
+
+  private static void writeCollection(Collection<?> collection, StringBuilder out) {
+    out.append('[');
+    boolean first = true;
+    for (Object item : collection) {
+      if (!first) {
+        out.append(',');
+      }
+
+      write(item, out);
+      first = false;
+    }
+    out.append(']');
+  }
+
+  private static void writeString(String value, StringBuilder out) {
+    out.append('"');
+    for (int i = 0, l = value.length(); i < l; i++) {
+      char c = value.charAt(i);
+      if (c == '"' || c == '\\') {
+        out.append('\\').append(c);
+      } else if (c < 0x20) {
+        out.append(String.format("\\u%04x", (int) c));
+      } else {
+        out.append(c);
+      }
+    }
+    out.append('"');
+  }
+}
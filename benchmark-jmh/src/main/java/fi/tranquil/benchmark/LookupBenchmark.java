@@ -0,0 +1,58 @@
+package fi.tranquil.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import fi.tranquil.BaseLookup;
+import fi.tranquil.CompactLookup;
+import fi.tranquil.CompleteLookup;
+import fi.tranquil.benchmark.model.Article;
+import fi.tranquil.processing.EntityLookup;
+
+/**
+ * Measures model class lookup through generated lookup classes, both for entity classes and for proxy subclasses
+ * resolved through the superclass chain.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LookupBenchmark {
+
+  @Benchmark
+  public Class<?> baseLookup() {
+    return baseLookup.findTranquilModel(entityClass);
+  }
+
+  @Benchmark
+  public Class<?> compactLookup() {
+    return compactLookup.findTranquilModel(entityClass);
+  }
+
+  @Benchmark
+  public Class<?> completeLookup() {
+    return completeLookup.findTranquilModel(entityClass);
+  }
+
+  @Benchmark
+  public Class<?> compactLookupProxy() {
+    return compactLookup.findTranquilModel(proxyClass);
+  }
+
+  @Benchmark
+  public Class<?> compactLookupMiss() {
+    return compactLookup.findTranquilModel(missingClass);
+  }
+
+  private EntityLookup baseLookup = new BaseLookup();
+  private EntityLookup compactLookup = new CompactLookup();
+  private EntityLookup completeLookup = new CompleteLookup();
+  private Class<?> entityClass = Article.class;
+  private Class<?> proxyClass = ModelFixtures.ArticleProxy.class;
+  private Class<?> missingClass = String.class;
+}
@@ -0,0 +1,79 @@
+package fi.tranquil.benchmark;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import fi.tranquil.benchmark.model.Article;
+import fi.tranquil.benchmark.model.Author;
+import fi.tranquil.benchmark.model.Tag;
+
+/**
+ * Deterministic entity graphs used by benchmarks
+ */
+public class ModelFixtures {
+
+  private static final int AUTHOR_COUNT = 50;
+  private static final int TAG_COUNT = 20;
+  private static final int TAGS_PER_ARTICLE = 3;
+
+  private ModelFixtures() {
+  }
+
+  /**
+   * Creates a page of articles sharing a small set of authors and tags
+   *
+   * @param size number of articles
+   * @return page of articles
+   */
+  public static List<Article> createArticles(int size) {
+    List<Author> authors = new ArrayList<Author>(AUTHOR_COUNT);
+    for (int i = 0; i < AUTHOR_COUNT; i++) {
+      Author author = new Author();
+      author.setId(Long.valueOf(i + 1));
+      author.setVersion(1l);
+      author.setName("Author " + i);
+      author.setEmail("author" + i + "@example.com");
+      authors.add(author);
+    }
+
+    List<Tag> tags = new ArrayList<Tag>(TAG_COUNT);
+    for (int i = 0; i < TAG_COUNT; i++) {
+      Tag tag = new Tag();
+      tag.setId(Long.valueOf(i + 1));
+      tag.setVersion(1l);
+      tag.setName("tag-" + i);
+      tags.add(tag);
+    }
+
+    List<Article> result = new ArrayList<Article>(size);
+    for (int i = 0; i < size; i++) {
+      Article article = new Article();
+      article.setId(Long.valueOf(i + 1));
+      article.setVersion(Long.valueOf(i % 5));
+      article.setTitle("Article " + i);
+      article.setBody("Body of article " + i + " with some representative length of text content");
+      article.setPublished(new Date(1400000000000l + i * 60000l));
+      article.setViews(i * 7);
+      article.setArchived(i % 10 == 0);
+      article.setAuthor(authors.get(i % AUTHOR_COUNT));
+      article.setReviewerId(Long.valueOf((i + 1) % AUTHOR_COUNT + 1));
+
+      List<Tag> articleTags = new ArrayList<Tag>(TAGS_PER_ARTICLE);
+      for (int j = 0; j < TAGS_PER_ARTICLE; j++) {
+        articleTags.add(tags.get((i + j) % TAG_COUNT));
+      }
+      article.setTags(articleTags);
+
+      result.add(article);
+    }
+
+    return result;
+  }
+
+  /**
+   * Proxy-like subclass of an entity, as created by JPA providers for lazy associations
+   */
+  public static class ArticleProxy extends Article {
+  }
+}
@@ -0,0 +1,57 @@
+package fi.tranquil.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import fi.tranquil.benchmark.model.Article;
+import fi.tranquil.benchmark.model.ArticleMapper;
+
+/**
+ * Measures populating generated models from entities through generated mappers, for single objects and pages.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PopulationBenchmark {
+
+  @Param({ "1", "10000" })
+  public int pageSize;
+
+  @Setup
+  public void setup() {
+    articles = ModelFixtures.createArticles(pageSize);
+  }
+
+  @Benchmark
+  public void toBase(Blackhole blackhole) {
+    for (Article article : articles) {
+      blackhole.consume(ArticleMapper.toBase(article));
+    }
+  }
+
+  @Benchmark
+  public void toCompact(Blackhole blackhole) {
+    for (Article article : articles) {
+      blackhole.consume(ArticleMapper.toCompact(article));
+    }
+  }
+
+  @Benchmark
+  public void toComplete(Blackhole blackhole) {
+    for (Article article : articles) {
+      blackhole.consume(ArticleMapper.toComplete(article));
+    }
+  }
+
+  private List<Article> articles;
+}
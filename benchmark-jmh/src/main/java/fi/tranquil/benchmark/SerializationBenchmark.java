@@ -0,0 +1,82 @@
+package fi.tranquil.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import fi.tranquil.benchmark.model.Article;
+import fi.tranquil.benchmark.model.ArticleCompact;
+import fi.tranquil.benchmark.model.ArticleComplete;
+import fi.tranquil.benchmark.model.ArticleMapper;
+import fi.tranquil.benchmark.support.JsonOutput;
+
+/**
+ * Measures serialization of Compact and Complete models into JSON, for single objects and pages. Accessor based
+ * serialization is compared against the generated streaming writers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SerializationBenchmark {
+
+  @Param({ "1", "10000" })
+  public int pageSize;
+
+  @Setup
+  public void setup() {
+    List<Article> articles = ModelFixtures.createArticles(pageSize);
+
+    compactModels = new ArrayList<ArticleCompact>(pageSize);
+    completeModels = new ArrayList<ArticleComplete>(pageSize);
+    for (Article article : articles) {
+      compactModels.add(ArticleMapper.toCompact(article));
+      completeModels.add(ArticleMapper.toComplete(article));
+    }
+  }
+
+  @Benchmark
+  public String compact() {
+    StringBuilder out = new StringBuilder();
+    AccessorJsonWriter.write(compactModels, out);
+    return out.toString();
+  }
+
+  @Benchmark
+  public String complete() {
+    StringBuilder out = new StringBuilder();
+    AccessorJsonWriter.write(completeModels, out);
+    return out.toString();
+  }
+
+  @Benchmark
+  public int compactStreaming() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    JsonOutput out = new JsonOutput(bytes);
+    out.writeValue(compactModels);
+    out.flush();
+    return bytes.size();
+  }
+
+  @Benchmark
+  public int completeStreaming() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    JsonOutput out = new JsonOutput(bytes);
+    out.writeValue(completeModels);
+    out.flush();
+    return bytes.size();
+  }
+
+  private List<ArticleCompact> compactModels;
+  private List<ArticleComplete> completeModels;
+}
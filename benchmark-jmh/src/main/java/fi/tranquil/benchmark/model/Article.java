@@ -0,0 +1,94 @@
+package fi.tranquil.benchmark.model;
+
+import java.util.Date;
+import java.util.List;
+
+import javax.persistence.Entity;
+
+import fi.tranquil.TranquilityEntityField;
+import fi.tranquil.benchmark.resolver.AuthorResolver;
+
+@Entity
+public class Article extends AbstractEntity {
+
+  public String getTitle() {
+    return title;
+  }
+
+  public void setTitle(String title) {
+    this.title = title;
+  }
+
+  public String getBody() {
+    return body;
+  }
+
+  public void setBody(String body) {
+    this.body = body;
+  }
+
+  public Date getPublished() {
+    return published;
+  }
+
+  public void setPublished(Date published) {
+    this.published = published;
+  }
+
+  public Integer getViews() {
+    return views;
+  }
+
+  public void setViews(Integer views) {
+    this.views = views;
+  }
+
+  public Boolean getArchived() {
+    return archived;
+  }
+
+  public void setArchived(Boolean archived) {
+    this.archived = archived;
+  }
+
+  public Author getAuthor() {
+    return author;
+  }
+
+  public void setAuthor(Author author) {
+    this.author = author;
+  }
+
+  public List<Tag> getTags() {
+    return tags;
+  }
+
+  public void setTags(List<Tag> tags) {
+    this.tags = tags;
+  }
+
+  public Long getReviewerId() {
+    return reviewerId;
+  }
+
+  public void setReviewerId(Long reviewerId) {
+    this.reviewerId = reviewerId;
+  }
+
+  private String title;
+
+  private String body;
+
+  private Date published;
+
+  private Integer views;
+
+  private Boolean archived;
+
+  private Author author;
+
+  private List<Tag> tags;
+
+  @TranquilityEntityField(AuthorResolver.class)
+  private Long reviewerId;
+}
@@ -0,0 +1,27 @@
+package fi.tranquil.benchmark.model;
+
+import javax.persistence.Entity;
+
+@Entity
+public class Author extends AbstractEntity {
+
+  public String getName() {
+    return name;
+  }
+
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  public String getEmail() {
+    return email;
+  }
+
+  public void setEmail(String email) {
+    this.email = email;
+  }
+
+  private String name;
+
+  private String email;
+}
@@ -0,0 +1,17 @@
+package fi.tranquil.benchmark.model;
+
+import javax.persistence.Entity;
+
+@Entity
+public class Tag extends AbstractEntity {
+
+  public String getName() {
+    return name;
+  }
+
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  private String name;
+}
@@ -0,0 +1,7 @@
+package fi.tranquil.benchmark.resolver;
+
+/**
+ * Resolver referenced by expanded fields of benchmark entities
+ */
+public class AuthorResolver {
+}
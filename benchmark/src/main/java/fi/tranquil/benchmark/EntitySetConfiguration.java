@@ -0,0 +1,73 @@
+package fi.tranquil.benchmark;
+
+import java.util.Locale;
+
+/**
+ * Shape of a synthetic entity set used in processor benchmarks
+ */
+public class EntitySetConfiguration {
+
+  public EntitySetConfiguration(int entityCount, int inheritanceDepth, int fanOut, int basicProperties, double expandedDensity) {
+    this.entityCount = entityCount;
+    this.inheritanceDepth = inheritanceDepth;
+    this.fanOut = fanOut;
+    this.basicProperties = basicProperties;
+    this.expandedDensity = expandedDensity;
+  }
+
+  /**
+   * Returns number of entities in the set
+   *
+   * @return number of entities in the set
+   */
+  public int getEntityCount() {
+    return entityCount;
+  }
+
+  /**
+   * Returns number of mapped superclasses above each entity
+   *
+   * @return number of mapped superclasses above each entity
+   */
+  public int getInheritanceDepth() {
+    return inheritanceDepth;
+  }
+
+  /**
+   * Returns number of associations from each entity to other entities. Every other association is a list.
+   *
+   * @return number of associations per entity
+   */
+  public int getFanOut() {
+    return fanOut;
+  }
+
+  /**
+   * Returns number of basic properties declared in each entity
+   *
+   * @return number of basic properties per entity
+   */
+  public int getBasicProperties() {
+    return basicProperties;
+  }
+
+  /**
+   * Returns probability of a basic property being an id annotated with @TranquilityEntityField
+   *
+   * @return probability of a basic property being an expanded field
+   */
+  public double getExpandedDensity() {
+    return expandedDensity;
+  }
+
+  @Override
+  public String toString() {
+    return String.format(Locale.ROOT, "entities=%d depth=%d fanOut=%d properties=%d expanded=%.2f", entityCount, inheritanceDepth, fanOut, basicProperties, expandedDensity);
+  }
+
+  private int entityCount;
+  private int inheritanceDepth;
+  private int fanOut;
+  private int basicProperties;
+  private double expandedDensity;
+}
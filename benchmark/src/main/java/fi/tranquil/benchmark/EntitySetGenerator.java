@@ -0,0 +1,167 @@
+package fi.tranquil.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Writes synthetic JPA entity sources for processor benchmarks. Generated sets are deterministic for given
+ * configuration and seed, so results are comparable between runs.
+ */
+public class EntitySetGenerator {
+
+  public static final String MODEL_PACKAGE = "bench.model";
+  public static final String RESOLVER_PACKAGE = "bench.resolver";
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final String[] BASIC_TYPES = { "String", "Integer", "Long", "Boolean", "java.util.Date", "Double" };
+
+  public EntitySetGenerator(EntitySetConfiguration configuration, long seed) {
+    this.configuration = configuration;
+    this.seed = seed;
+  }
+
+  /**
+   * Writes entity set sources under given directory
+   *
+   * @param sourceDirectory source root
+   * @return written source files
+   * @throws IOException when sources could not be written
+   */
+  public List<File> generate(File sourceDirectory) throws IOException {
+    Random random = new Random(seed);
+    List<File> result = new ArrayList<File>();
+
+    result.add(writeSource(sourceDirectory, RESOLVER_PACKAGE, "EntityResolver", generateResolver()));
+
+    for (int level = 0; level < configuration.getInheritanceDepth(); level++) {
+      result.add(writeSource(sourceDirectory, MODEL_PACKAGE, getSuperclassName(level), generateSuperclass(level)));
+    }
+
+    for (int i = 0; i < configuration.getEntityCount(); i++) {
+      result.add(writeSource(sourceDirectory, MODEL_PACKAGE, getEntityName(i), generateEntity(i, random)));
+    }
+
+    return result;
+  }
+
+  private String generateResolver() {
+    StringBuilder source = new StringBuilder();
+    source.append("package ").append(RESOLVER_PACKAGE).append(";\n\n");
+    source.append("public class EntityResolver {\n}\n");
+    return source.toString();
+  }
+
+  private String generateSuperclass(int level) {
+    StringBuilder source = new StringBuilder();
+    source.append("package ").append(MODEL_PACKAGE).append(";\n\n");
+    source.append("@javax.persistence.MappedSuperclass\n");
+    source.append("public abstract class ").append(getSuperclassName(level));
+    if (level > 0) {
+      source.append(" extends ").append(getSuperclassName(level - 1));
+    }
+    source.append(" {\n");
+
+    if (level == 0) {
+      appendField(source, "@javax.persistence.Id", "Long", "id");
+      appendField(source, "@javax.persistence.Version", "Long", "version");
+    }
+
+    appendField(source, null, "String", "level" + level + "Name");
+    appendField(source, null, "java.util.Date", "level" + level + "Modified");
+
+    source.append("}\n");
+    return source.toString();
+  }
+
+  private String generateEntity(int index, Random random) {
+    String name = getEntityName(index);
+
+    StringBuilder source = new StringBuilder();
+    source.append("package ").append(MODEL_PACKAGE).append(";\n\n");
+    source.append("@javax.persistence.Entity\n");
+    source.append("public class ").append(name);
+    if (configuration.getInheritanceDepth() > 0) {
+      source.append(" extends ").append(getSuperclassName(configuration.getInheritanceDepth() - 1));
+    }
+    source.append(" {\n");
+
+    if (configuration.getInheritanceDepth() == 0) {
+      appendField(source, "@javax.persistence.Id", "Long", "id");
+    }
+
+    for (int i = 0; i < configuration.getBasicProperties(); i++) {
+      if (random.nextDouble() < configuration.getExpandedDensity()) {
+        String annotation = "@fi.tranquil.TranquilityEntityField(" + RESOLVER_PACKAGE + ".EntityResolver.class)";
+        if (random.nextBoolean()) {
+          appendField(source, annotation, "Long", "expanded" + i + "Id");
+        } else {
+          appendField(source, annotation, "java.util.List<Long>", "expanded" + i + "Ids");
+        }
+      } else {
+        appendField(source, null, BASIC_TYPES[i % BASIC_TYPES.length], "property" + i);
+      }
+    }
+
+    for (int i = 0; i < configuration.getFanOut(); i++) {
+      String target = getEntityName(random.nextInt(configuration.getEntityCount()));
+      if (i % 2 == 0) {
+        appendField(source, null, target, "reference" + i);
+      } else {
+        appendField(source, null, "java.util.List<" + target + ">", "references" + i);
+      }
+    }
+
+    source.append("}\n");
+    return source.toString();
+  }
+
+  private void appendField(StringBuilder source, String annotation, String type, String name) {
+    String capitalized = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+
+    source.append('\n');
+    if (annotation != null) {
+      source.append("  ").append(annotation).append('\n');
+    }
+    source.append("  private ").append(type).append(' ').append(name).append(";\n\n");
+    source.append("  public ").append(type).append(" get").append(capitalized).append("() {\n");
+    source.append("    return ").append(name).append(";\n");
+    source.append("  }\n\n");
+    source.append("  public void set").append(capitalized).append('(').append(type).append(' ').append(name).append(") {\n");
+    source.append("    this.").append(name).append(" = ").append(name).append(";\n");
+    source.append("  }\n");
+  }
+
+  private File writeSource(File sourceDirectory, String packageName, String className, String source) throws IOException {
+    File packageDirectory = new File(sourceDirectory, packageName.replace('.', File.separatorChar));
+    if (!packageDirectory.isDirectory() && !packageDirectory.mkdirs()) {
+      throw new IOException("Could not create directory " + packageDirectory);
+    }
+
+    File file = new File(packageDirectory, className + ".java");
+    OutputStream fileStream = new FileOutputStream(file);
+    try {
+      fileStream.write(source.getBytes(UTF_8));
+    } finally {
+      fileStream.close();
+    }
+
+    return file;
+  }
+
+  private String getSuperclassName(int level) {
+    return "AbstractLevel" + level;
+  }
+
+  private String getEntityName(int index) {
+    return "Entity" + index;
+  }
+
+  private EntitySetConfiguration configuration;
+  private long seed;
+}
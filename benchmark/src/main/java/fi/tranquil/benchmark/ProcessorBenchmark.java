@@ -0,0 +1,270 @@
+package fi.tranquil.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaCompiler.CompilationTask;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import fi.tranquil.TranquilModelAnnotationProcessor;
+
+/**
+ * Measures annotation processor throughput over synthetic entity sets.
+ *
+ * Processor is run in-process through {@link JavaCompiler} with -proc:only, once in flat mode and once in
+ * Base / Compact / Complete mode for every configuration. Wall time, bytes allocated by the compiling thread
+ * and generated output size are reported as medians over measured iterations.
+ *
+ * Arguments are given as name=value pairs:
+ *
+ * entities   comma separated list of entity counts (default 50,200,1000)
+ * depth      number of mapped superclasses above each entity (default 2)
+ * fanOut     number of associations per entity (default 4)
+ * properties number of basic properties per entity (default 8)
+ * expanded   probability of a basic property being an expanded field (default 0.25)
+ * warmup     number of warmup iterations (default 3)
+ * iterations number of measured iterations (default 10)
+ * seed       seed for generating entity sets (default 1)
+ *
+ * Arguments starting with -A are passed to the processor as is.
+ */
+public class ProcessorBenchmark {
+
+  public static void main(String[] args) throws IOException {
+    Map<String, String> arguments = new LinkedHashMap<String, String>();
+    arguments.put("entities", "50,200,1000");
+    arguments.put("depth", "2");
+    arguments.put("fanOut", "4");
+    arguments.put("properties", "8");
+    arguments.put("expanded", "0.25");
+    arguments.put("warmup", "3");
+    arguments.put("iterations", "10");
+    arguments.put("seed", "1");
+
+    List<String> processorOptions = new ArrayList<String>();
+
+    List<String> argumentList = new ArrayList<String>();
+    for (String arg : args) {
+      argumentList.addAll(Arrays.asList(arg.trim().split("\\s+")));
+    }
+
+    for (String arg : argumentList) {
+      if (arg.isEmpty()) {
+        continue;
+      } else if (arg.startsWith("-A")) {
+        processorOptions.add(arg);
+      } else if (arg.indexOf('=') > 0) {
+        arguments.put(arg.substring(0, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+      } else {
+        throw new IllegalArgumentException("Invalid argument " + arg);
+      }
+    }
+
+    ProcessorBenchmark benchmark = new ProcessorBenchmark(Integer.parseInt(arguments.get("warmup")), Integer.parseInt(arguments.get("iterations")), processorOptions);
+    benchmark.printHeader(System.out);
+
+    for (String entityCount : arguments.get("entities").split(",")) {
+      EntitySetConfiguration configuration = new EntitySetConfiguration(
+        Integer.parseInt(entityCount.trim()),
+        Integer.parseInt(arguments.get("depth")),
+        Integer.parseInt(arguments.get("fanOut")),
+        Integer.parseInt(arguments.get("properties")),
+        Double.parseDouble(arguments.get("expanded")));
+
+      benchmark.run(configuration, Long.parseLong(arguments.get("seed")), System.out);
+    }
+  }
+
+  public ProcessorBenchmark(int warmupIterations, int measuredIterations, List<String> processorOptions) {
+    this.warmupIterations = warmupIterations;
+    this.measuredIterations = measuredIterations;
+    this.processorOptions = processorOptions;
+    this.compiler = ToolProvider.getSystemJavaCompiler();
+    if (this.compiler == null) {
+      throw new IllegalStateException("System Java compiler is not available, benchmark must be run on a JDK");
+    }
+  }
+
+  /**
+   * Runs benchmark for a configuration in both flat and non-flat mode and prints the results.
+   *
+   * @param configuration entity set configuration
+   * @param seed seed for entity set generation
+   * @param out stream results are printed into
+   * @throws IOException when entity set could not be written
+   */
+  public void run(EntitySetConfiguration configuration, long seed, PrintStream out) throws IOException {
+    File workDirectory = createTempDirectory();
+    try {
+      File sourceDirectory = new File(workDirectory, "src");
+      List<File> sources = new EntitySetGenerator(configuration, seed).generate(sourceDirectory);
+
+      for (boolean flatModel : new boolean[] { true, false }) {
+        List<Measurement> measurements = new ArrayList<Measurement>();
+
+        for (int i = 0; i < warmupIterations + measuredIterations; i++) {
+          File outputDirectory = new File(workDirectory, "out" + i);
+          Measurement measurement = measure(sources, outputDirectory, flatModel);
+          deleteRecursively(outputDirectory);
+
+          if (i >= warmupIterations) {
+            measurements.add(measurement);
+          }
+        }
+
+        printResult(out, configuration, flatModel, measurements);
+      }
+    } finally {
+      deleteRecursively(workDirectory);
+    }
+  }
+
+  private Measurement measure(List<File> sources, File outputDirectory, boolean flatModel) throws IOException {
+    File generatedDirectory = new File(outputDirectory, "generated");
+    File classesDirectory = new File(outputDirectory, "classes");
+    if (!generatedDirectory.mkdirs() || !classesDirectory.mkdirs()) {
+      throw new IOException("Could not create output directories under " + outputDirectory);
+    }
+
+    List<String> options = new ArrayList<String>(Arrays.asList(
+      "-proc:only",
+      "-implicit:none",
+      "-nowarn",
+      "-classpath", System.getProperty("java.class.path"),
+      "-s", generatedDirectory.getAbsolutePath(),
+      "-d", classesDirectory.getAbsolutePath(),
+      "-AflatModel=" + flatModel,
+      "-AsupportPackage=" + EntitySetGenerator.MODEL_PACKAGE + ".support"));
+    options.addAll(processorOptions);
+
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+    StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, Locale.ROOT, null);
+    try {
+      CompilationTask task = compiler.getTask(null, fileManager, diagnostics, options, null, fileManager.getJavaFileObjectsFromFiles(sources));
+      task.setProcessors(Collections.singletonList(new TranquilModelAnnotationProcessor()));
+
+      long allocatedBefore = getAllocatedBytes();
+      long startTime = System.nanoTime();
+      boolean success = task.call();
+      long wallTime = System.nanoTime() - startTime;
+      long allocated = getAllocatedBytes() - allocatedBefore;
+
+      if (!success) {
+        throw new IllegalStateException("Processing failed: " + diagnostics.getDiagnostics());
+      }
+
+      Measurement measurement = new Measurement();
+      measurement.wallTime = wallTime;
+      measurement.allocatedBytes = allocatedBefore >= 0 ? allocated : -1;
+      collectOutput(generatedDirectory, measurement);
+      collectOutput(classesDirectory, measurement);
+      return measurement;
+    } finally {
+      fileManager.close();
+    }
+  }
+
+  private void collectOutput(File file, Measurement measurement) {
+    if (file.isDirectory()) {
+      for (File child : file.listFiles()) {
+        collectOutput(child, measurement);
+      }
+    } else {
+      measurement.generatedFiles++;
+      measurement.generatedBytes += file.length();
+    }
+  }
+
+  /**
+   * Returns bytes allocated by current thread. Compiler runs processors in the calling thread, so this covers
+   * processing except rendering done in worker threads when renderThreads option is used.
+   *
+   * @return bytes allocated by current thread or -1 when not supported by the JVM
+   */
+  private long getAllocatedBytes() {
+    ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+    if (threadBean instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+      if (allocationBean.isThreadAllocatedMemorySupported() && allocationBean.isThreadAllocatedMemoryEnabled()) {
+        return allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+      }
+    }
+
+    return -1;
+  }
+
+  private void printHeader(PrintStream out) {
+    out.println(String.format(Locale.ROOT, "%-70s %-8s %10s %10s %12s %8s %12s", "configuration", "mode", "median ms", "min ms", "alloc MB", "files", "output KB"));
+  }
+
+  private void printResult(PrintStream out, EntitySetConfiguration configuration, boolean flatModel, List<Measurement> measurements) {
+    long[] wallTimes = new long[measurements.size()];
+    long[] allocations = new long[measurements.size()];
+    for (int i = 0, l = measurements.size(); i < l; i++) {
+      wallTimes[i] = measurements.get(i).wallTime;
+      allocations[i] = measurements.get(i).allocatedBytes;
+    }
+
+    Arrays.sort(wallTimes);
+    Arrays.sort(allocations);
+
+    Measurement last = measurements.get(measurements.size() - 1);
+    long medianAllocation = allocations[allocations.length / 2];
+
+    out.println(String.format(Locale.ROOT, "%-70s %-8s %10.1f %10.1f %12s %8d %12.1f",
+      configuration,
+      flatModel ? "flat" : "full",
+      wallTimes[wallTimes.length / 2] / 1000000d,
+      wallTimes[0] / 1000000d,
+      medianAllocation >= 0 ? String.format(Locale.ROOT, "%.1f", medianAllocation / (1024d * 1024d)) : "n/a",
+      last.generatedFiles,
+      last.generatedBytes / 1024d));
+  }
+
+  private File createTempDirectory() throws IOException {
+    File file = File.createTempFile("tranquil-benchmark", "");
+    if (!file.delete() || !file.mkdir()) {
+      throw new IOException("Could not create temporary directory " + file);
+    }
+
+    return file;
+  }
+
+  private void deleteRecursively(File file) {
+    File[] children = file.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        deleteRecursively(child);
+      }
+    }
+
+    file.delete();
+  }
+
+  private int warmupIterations;
+  private int measuredIterations;
+  private List<String> processorOptions;
+  private JavaCompiler compiler;
+
+  private static class Measurement {
+
+    private long wallTime;
+    private long allocatedBytes;
+    private int generatedFiles;
+    private long generatedBytes;
+  }
+}
@@ -1,197 +1,349 @@
 package fi.tranquil;
 
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
-import java.io.PrintWriter;
+import java.io.Reader;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
-import javax.tools.JavaFileObject;
+import javax.tools.FileObject;
 
 /**
  * Class for writing {@link ClassWriter} classes into files
  */
 public class ClassWriter {
 
-  public void writeClass(JavaFileObject file, ModelClass modelClass) throws IOException {
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  /**
+   * Renders source code of a class
+   * 
+   * @param modelClass class
+   * @return source code of the class
+   */
+  public String renderClass(ModelClass modelClass) {
+    StringBuilder classBuilder = new StringBuilder();
+    
+    printPackage(modelClass.getPackageName(), classBuilder);
+    printLn(classBuilder);
+    
+    if (!modelClass.getImports().isEmpty()) {
+      for (String importString : modelClass.getImports()) {
+        printImport(classBuilder, importString);
+      }
+      printLn(classBuilder);
+    }
+    
+    for (String classAnnotation : modelClass.getClassAnnotations()) {
+      printClassAnnotation(classBuilder, classAnnotation);
+    }
+    
+    if (modelClass.getParentClass() != null) {
+    	String parentClassName = null;
+     
+    	ModelClass parentClass = modelClass.getParentClass();
+    	if (modelClass.getPackageName().equals(parentClass.getPackageName())) {
+    		parentClassName = parentClass.getName();
+    	} else {
+    		parentClassName = parentClass.getFullyQualifiedName();
+    	}
+      
+      printClassOpening(modelClass.getModifiers(), modelClass.getName(), parentClassName, modelClass.getInterfaces(), classBuilder);
+    } else {
+      printClassOpening(modelClass.getModifiers(), modelClass.getName(), modelClass.getInterfaces(), classBuilder);
+    }
+    
+    for (ModelMethod method : modelClass.getMethods()) {
+      printLn(classBuilder);
+      printMethod(method, classBuilder);
+    }
+    
+    for (ModelProperty property : modelClass.getProperties()) {
+      printLn(classBuilder);
+      printField(property, classBuilder);
+    }
+    
+    printClassClosing(classBuilder);
+    
+    return classBuilder.toString();
+  }
+
+  /**
+   * Renders source code of a support class from a template bundled with the processor.
+   * 
+   * @param packageName package the support class is placed in
+   * @param templateName name of the template
+   * @return source code of the support class
+   * @throws IOException when template could not be read
+   */
+  public String renderTemplate(String packageName, String templateName) throws IOException {
+    return renderTemplate(packageName, templateName, Collections.<String, String>emptyMap());
+  }
+
+  /**
+   * Renders source code of a support class from a template shared by several support classes. Each ${name}
+   * placeholder of the template is replaced with the value of the variable.
+   * 
+   * @param packageName package the support class is placed in
+   * @param templateName name of the template
+   * @param variables values of the template variables by name
+   * @return source code of the support class
+   * @throws IOException when template could not be read
+   */
+  public String renderTemplate(String packageName, String templateName, Map<String, String> variables) throws IOException {
+    String result = readTemplate(templateName).replace("${package}", packageName);
+    for (Map.Entry<String, String> variable : variables.entrySet()) {
+      result = result.replace("${" + variable.getKey() + "}", variable.getValue());
+    }
+    
+    return result;
+  }
+
+  /**
+   * Writes contents into a file encoded as UTF-8.
+   * 
+   * Identical outputs can not be skipped: Filer truncates the file when it is opened and the compiler 
+   * only compiles sources created through Filer in the current run, so every file has to be written. 
+   * When the previous output had identical contents its modification time is restored, so tools tracking 
+   * outputs by timestamps do not see the file as changed. Tools watching file events or inodes still do.
+   * 
+   * @param file file to be written
+   * @param contents file contents
+   * @return whether the file changed, i.e. its contents changed or its modification time could not be restored
+   * @throws IOException when file could not be written
+   */
+  public boolean writeFile(FileObject file, String contents) throws IOException {
+    byte[] data = contents.getBytes(UTF_8);
+    File existingFile = getExistingFile(file);
+    long lastModified = 0;
+    boolean changed = true;
+    
+    if (existingFile != null && existingFile.length() == data.length) {
+      lastModified = existingFile.lastModified();
+      changed = !Arrays.equals(digest(data), digest(existingFile));
+    }
+    
     OutputStream fileStream = openFileStream(file);
     try {
-      PrintWriter fileWriter = openFileWriter(fileStream);
-      try {
-    
-        printPackage(modelClass.getPackageName(), fileWriter);
-        printLn(fileWriter);
-        
-        if (!modelClass.getImports().isEmpty()) {
-          for (String importString : modelClass.getImports()) {
-            printImport(fileWriter, importString);
-          }
-          printLn(fileWriter);
-        }
-
-        for (String classAnnotation : modelClass.getClassAnnotations()) {
-          printClassAnnotation(fileWriter, classAnnotation);
-        }
-        
-        if (modelClass.getParentClass() != null) {
-        	String parentClassName = null;
-            	
-        	ModelClass parentClass = modelClass.getParentClass();
-        	if (modelClass.getPackageName().equals(parentClass.getPackageName())) {
-        		parentClassName = parentClass.getName();
-        	} else {
-        		parentClassName = parentClass.getFullyQualifiedName();
-        	}
-        	
-          printClassOpening(modelClass.getName(), parentClassName, modelClass.getInterfaces(), fileWriter);
-        } else {
-          printClassOpening(modelClass.getName(), modelClass.getInterfaces(), fileWriter);
-        }
-        
-        for (ModelMethod method : modelClass.getMethods()) {
-          printLn(fileWriter);
-          printMethod(method, fileWriter);
-        }
-
-        for (ModelProperty property : modelClass.getProperties()) {
-          printLn(fileWriter);
-          printField(property, fileWriter);
-        }
-    
-        printClassClosing(fileWriter); 
-        
-      } finally {
-        closeFileWriter(fileWriter);
-      }
+      fileStream.write(data);
     } finally {
       closeFileStream(fileStream);
     }
+    
+    if (!changed && lastModified > 0 && !existingFile.setLastModified(lastModified)) {
+      changed = true;
+    }
+    
+    return changed;
+  }
+
+  private String readTemplate(String templateName) throws IOException {
+    InputStream templateStream = ClassWriter.class.getResourceAsStream("templates/" + templateName + ".java.template");
+    if (templateStream == null) {
+      throw new IOException("Could not find template " + templateName);
+    }
+    
+    try {
+      Reader templateReader = new InputStreamReader(templateStream, UTF_8);
+      StringBuilder templateBuilder = new StringBuilder();
+      char[] buffer = new char[4096];
+      int read;
+      while ((read = templateReader.read(buffer)) != -1) {
+        templateBuilder.append(buffer, 0, read);
+      }
+      
+      return templateBuilder.toString();
+    } finally {
+      templateStream.close();
+    }
   }
 
-  private void printLn(PrintWriter fileWriter) {
-    fileWriter.append('\n');
+  private void printLn(StringBuilder classBuilder) {
+    classBuilder.append('\n');
   }
 
-  private void printPackage(String packageName, PrintWriter fileWriter) {
-    fileWriter
+  private void printPackage(String packageName, StringBuilder classBuilder) {
+    classBuilder
       .append("package ")
       .append(packageName)
       .append(";\n");
   }
 
-  private void printImport(PrintWriter fileWriter, String importString) {
-    fileWriter
+  private void printImport(StringBuilder classBuilder, String importString) {
+    classBuilder
       .append("import ")
       .append(importString)
       .append(";\n");
   }
 
-  private void printClassAnnotation(PrintWriter fileWriter, String classAnnotation) {
-    fileWriter
+  private void printClassAnnotation(StringBuilder classBuilder, String classAnnotation) {
+    classBuilder
       .append(classAnnotation)
       .append("\n");
   }
 
-  private void printClassOpening(String className, List<String> interfaces, PrintWriter fileWriter) {
-    printClassOpening(className, null, interfaces, fileWriter);
+  private void printClassOpening(String modifiers, String className, List<String> interfaces, StringBuilder classBuilder) {
+    printClassOpening(modifiers, className, null, interfaces, classBuilder);
   }
-  
-  private void printClassOpening(String className, String parentClass, List<String> interfaces, PrintWriter fileWriter) {
-    fileWriter
-      .append("public class ")
+
+  private void printClassOpening(String modifiers, String className, String parentClass, List<String> interfaces, StringBuilder classBuilder) {
+    classBuilder
+      .append(modifiers)
+      .append(" class ")
       .append(className);
     
     if (parentClass != null) {
-      fileWriter.append(" extends ");
-      fileWriter.append(parentClass);
+      classBuilder.append(" extends ");
+      classBuilder.append(parentClass);
     }
     
     if (interfaces.size() > 0) {
-      fileWriter.append(" implements ");
+      classBuilder.append(" implements ");
       for (int i = 0, l = interfaces.size(); i < l; i++) {
         String implementedInterface = interfaces.get(i);
-        fileWriter.append(implementedInterface);
-        if (i < (l - 1)) 
-          fileWriter.append(" ,"); 
-      } 
+        classBuilder.append(implementedInterface);
+        if (i < (l - 1))
+          classBuilder.append(" ,");
+      }
     }
     
-    fileWriter.append(" {\n");
+    classBuilder.append(" {\n");
   }
 
-  private void printClassClosing(PrintWriter fileWriter) {
-    fileWriter.append("}\n");
+  private void printClassClosing(StringBuilder classBuilder) {
+    classBuilder.append("}\n");
   }
 
-  private void printMethod(ModelMethod method, PrintWriter fileWriter) {
+  private void printMethod(ModelMethod method, StringBuilder classBuilder) {
     for (String annotation : method.getAnnotations()) {
-      fileWriter
+      classBuilder
         .append("  ")
         .append(annotation)
         .append('\n');
     }
-
-    fileWriter.append("  ");
-    fileWriter.append(method.getModifiers());
-    fileWriter.append(' ');
+    
+    classBuilder.append("  ");
+    if (method.getModifiers().length() > 0) {
+      classBuilder.append(method.getModifiers());
+      classBuilder.append(' ');
+    }
+    
     if (method.getReturnType() != null) {
-      fileWriter.append(method.getReturnType());
-      fileWriter.append(' ');
+      classBuilder.append(method.getReturnType());
+      classBuilder.append(' ');
     }
     
-    fileWriter
+    classBuilder
       .append(method.getName())
       .append("(");
     
     if (method.getParameters() != null) {
-      fileWriter.append(method.getParameters());
+      classBuilder.append(method.getParameters());
+    }
+    
+    classBuilder.append(")");
+    
+    List<String> exceptions = method.getExceptions();
+    for (int i = 0, l = exceptions.size(); i < l; i++) {
+      classBuilder
+        .append(i == 0 ? " throws " : ", ")
+        .append(exceptions.get(i));
     }
     
-    fileWriter
-      .append(") {\n")
+    classBuilder
+      .append(" {\n")
       .append(method.getBody())
       .append("\n  }\n");
   }
 
-  private void printField(ModelProperty property, PrintWriter fileWriter) {
+  private void printField(ModelProperty property, StringBuilder classBuilder) {
     for (String annotation : property.getAnnotations()) {
-      fileWriter
+      classBuilder
         .append("  ")
         .append(annotation)
         .append('\n');
     }
-
-    fileWriter.append("  ")
-      .append(property.getModifiers())
-      .append(" ")
-      .append(property.getType())
+    
+    classBuilder.append("  ");
+    if (property.getModifiers().length() > 0) {
+      classBuilder
+        .append(property.getModifiers())
+        .append(" ");
+    }
+    
+    classBuilder
+      .append(property.getFieldType())
       .append(" ")
       .append(property.getName());
     
     String defaultValue = property.getDefaultValue();
     if (defaultValue  != null) {
-      fileWriter.append(" = ");
-      fileWriter.append(defaultValue);
+      classBuilder.append(" = ");
+      classBuilder.append(defaultValue);
     }
+    
+    classBuilder.append(";\n");
+  }
 
-    fileWriter.append(";\n");
+  private File getExistingFile(FileObject file) {
+    URI uri = file.toUri();
+    if (uri.isAbsolute() && "file".equals(uri.getScheme())) {
+      File result = new File(uri);
+      if (result.isFile()) {
+        return result;
+      }
+    }
+    
+    return null;
   }
-  
-  private OutputStream openFileStream(JavaFileObject file) throws IOException {
-    return file.openOutputStream();
+
+  private byte[] digest(byte[] data) throws IOException {
+    MessageDigest digest = createDigest();
+    digest.update(data);
+    return digest.digest();
+  }
+
+  private byte[] digest(File file) throws IOException {
+    MessageDigest digest = createDigest();
+    InputStream fileStream = new FileInputStream(file);
+    try {
+      byte[] buffer = new byte[8192];
+      int read;
+      while ((read = fileStream.read(buffer)) != -1) {
+        digest.update(buffer, 0, read);
+      }
+    } finally {
+      fileStream.close();
+    }
+    
+    return digest.digest();
   }
-  
-  private PrintWriter openFileWriter(OutputStream fileStream) throws IOException {
-    return new PrintWriter(fileStream);
+
+  private MessageDigest createDigest() throws IOException {
+    try {
+      return MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IOException(e);
+    }
   }
-  
+
+  private OutputStream openFileStream(FileObject file) throws IOException {
+    return file.openOutputStream();
+  }
+
   private void closeFileStream(OutputStream fileStream) throws IOException {
     fileStream.flush();
     fileStream.close();
   }
-  
-  private void closeFileWriter(PrintWriter fileWriter) {
-    fileWriter.flush();
-    fileWriter.close();
-  }
 
 }
@@ -0,0 +1,57 @@
+package fi.tranquil;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per compilation cache for type introspection results of {@link TranquilModelAnnotationProcessor}
+ */
+public class IntrospectionCache<K, V> {
+
+  public IntrospectionCache(String name) {
+    this.name = name;
+  }
+  
+  public String getName() {
+    return name;
+  }
+  
+  /**
+   * Returns whether a value has been cached for the key. Also null values are cached, so 
+   * callers should check this before calling {@link #get(Object)}
+   * 
+   * @param key key
+   * @return whether a value has been cached for the key
+   */
+  public boolean containsKey(K key) {
+    if (values.containsKey(key)) {
+      hits++;
+      return true;
+    }
+    
+    misses++;
+    return false;
+  }
+  
+  public V get(K key) {
+    return values.get(key);
+  }
+  
+  public V put(K key, V value) {
+    values.put(key, value);
+    return value;
+  }
+  
+  public long getHits() {
+    return hits;
+  }
+  
+  public long getMisses() {
+    return misses;
+  }
+  
+  private String name;
+  private Map<K, V> values = new HashMap<K, V>();
+  private long hits;
+  private long misses;
+}
@@ -26,6 +26,14 @@ public class ModelClass {
     return packageName;
   }
 
+  public String getModifiers() {
+    return modifiers;
+  }
+  
+  public void setModifiers(String modifiers) {
+    this.modifiers = modifiers;
+  }
+
   public ModelClass getParentClass() {
     return parentClass;
   }
@@ -91,7 +99,12 @@ public class ModelClass {
   }
   
   public ModelMethod addGetter(ModelProperty property) {
-    return addMethod("public", property.getType(), "get" + captitalize(property.getName()), null, "    return " + property.getName() + ";");
+    return addGetter(property, "    return " + property.getName() + ";");
+  }
+  
+  public ModelMethod addGetter(ModelProperty property, String body) {
+    accessorProperties.add(property);
+    return addMethod("public", property.getType(), getGetterName(property), null, body);
   }
   
   public ModelMethod addSetter(ModelProperty property) {
@@ -103,7 +116,46 @@ public class ModelClass {
       .append(property.getName())
       .append(";");
     
-    return addMethod("public", "void", "set" + captitalize(property.getName()), property.getType() + " " + property.getName(), bodyBuilder.toString());
+    return addSetter(property, bodyBuilder.toString());
+  }
+  
+  public ModelMethod addSetter(ModelProperty property, String body) {
+    return addMethod("public", "void", getSetterName(property), property.getType() + " " + property.getName(), body);
+  }
+  
+  public String getGetterName(ModelProperty property) {
+    return "get" + captitalize(property.getName());
+  }
+  
+  public String getSetterName(ModelProperty property) {
+    return "set" + captitalize(property.getName());
+  }
+  
+  /**
+   * Returns properties that have a getter in this class
+   * 
+   * @return properties that have a getter in this class
+   */
+  public List<ModelProperty> getAccessorProperties() {
+    return accessorProperties;
+  }
+  
+  /**
+   * Returns properties that have a getter in this class or in any of its parent classes. 
+   * Parent class properties are listed first.
+   * 
+   * @return properties that have a getter in this class or in its parent classes
+   */
+  public List<ModelProperty> getAllAccessorProperties() {
+    List<ModelProperty> result = new ArrayList<ModelProperty>();
+    
+    if (parentClass != null) {
+      result.addAll(parentClass.getAllAccessorProperties());
+    }
+    
+    result.addAll(accessorProperties);
+    
+    return result;
   }
   
   public List<ModelMethod> getMethods() {
@@ -122,6 +174,8 @@ public class ModelClass {
   
   private String name;
   
+  private String modifiers = "public";
+  
   private ModelClass parentClass;
   
   private List<String> imports = new ArrayList<String>();
@@ -133,4 +187,6 @@ public class ModelClass {
   private List<ModelProperty> properties = new ArrayList<ModelProperty>();
   
   private List<ModelMethod> methods = new ArrayList<ModelMethod>();
+  
+  private List<ModelProperty> accessorProperties = new ArrayList<ModelProperty>();
 }
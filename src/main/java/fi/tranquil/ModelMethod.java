@@ -41,10 +41,19 @@ public class ModelMethod {
     return annotations;
   }
   
+  public void addException(String exception) {
+    exceptions.add(exception);
+  }
+  
+  public List<String> getExceptions() {
+    return exceptions;
+  }
+  
   private String modifiers;
   private String returnType;
   private String name;
   private String parameters;
   private String body;
   private List<String> annotations = new ArrayList<String>();
+  private List<String> exceptions = new ArrayList<String>();
 }
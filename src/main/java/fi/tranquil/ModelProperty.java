@@ -23,6 +23,48 @@ public class ModelProperty {
     return type;
   }
   
+  /**
+   * Returns type of the field storing the property. Defaults to the property type, 
+   * which is used in the accessor signatures.
+   * 
+   * @return type of the field
+   */
+  public String getFieldType() {
+    return fieldType != null ? fieldType : type;
+  }
+  
+  public void setFieldType(String fieldType) {
+    this.fieldType = fieldType;
+  }
+  
+  /**
+   * Returns type of the collections a mapper allocates for the property, when it differs from 
+   * the property type, e.g. a primitive id list for a list of ids. 
+   * 
+   * @return implementation type or null when ordinary collections are used
+   */
+  public String getImplementationType() {
+    return implementationType;
+  }
+  
+  public void setImplementationType(String implementationType) {
+    this.implementationType = implementationType;
+  }
+  
+  /**
+   * Returns whether mappers populate the property with a collection allocated by the model, 
+   * which the model clears and hands out again when it is reused.
+   * 
+   * @return whether the collection of the property may be reused
+   */
+  public boolean isReusable() {
+    return reusable;
+  }
+  
+  public void setReusable(boolean reusable) {
+    this.reusable = reusable;
+  }
+  
   public String getDefaultValue() {
     return defaultValue;
   }
@@ -42,6 +84,9 @@ public class ModelProperty {
   private List<String> annotations = new ArrayList<String>();
   private String modifiers;
   private String type;
+  private String fieldType;
+  private String implementationType;
   private String name;
   private String defaultValue;
+  private boolean reusable;
 }
\ No newline at end of file
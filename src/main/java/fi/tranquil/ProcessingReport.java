@@ -0,0 +1,217 @@
+package fi.tranquil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Collects timings, generated file sizes and cache statistics of {@link TranquilModelAnnotationProcessor}
+ * and renders them as JSON.
+ *
+ * Timings are recorded per owner, which is either an entity or the aggregating step writing lookups,
+ * model index and support classes.
+ */
+public class ProcessingReport {
+
+  public static final String PHASE_CLASS_TREE = "classTree";
+  public static final String PHASE_PROPERTIES = "properties";
+  public static final String PHASE_MODELS = "models";
+  public static final String PHASE_RENDER = "render";
+  public static final String PHASE_WRITE = "write";
+
+  private static final String[] PHASES = { PHASE_CLASS_TREE, PHASE_PROPERTIES, PHASE_MODELS, PHASE_RENDER, PHASE_WRITE };
+
+  /**
+   * Adds time spent in a phase
+   *
+   * @param owner qualified name of the entity or null for aggregates
+   * @param phase phase
+   * @param nanos time in nanoseconds
+   */
+  public void addTime(String owner, String phase, long nanos) {
+    Entry entry = getEntry(owner);
+    Long time = entry.times.get(phase);
+    entry.times.put(phase, time != null ? time + nanos : nanos);
+  }
+
+  /**
+   * Adds a generated file
+   *
+   * @param owner qualified name of the entity or null for aggregates
+   * @param name name of the file
+   * @param bytes size of the file in bytes
+   */
+  public void addFile(String owner, String name, long bytes) {
+    getEntry(owner).files.put(name, bytes);
+  }
+
+  /**
+   * Adds statistics of an introspection cache
+   *
+   * @param cache cache
+   */
+  public void addCache(IntrospectionCache<?, ?> cache) {
+    caches.add(cache);
+  }
+
+  /**
+   * Renders the report as JSON. Entities are ordered by their total time, slowest first.
+   *
+   * @return report as JSON
+   */
+  public String toJson() {
+    List<Entry> entityEntries = new ArrayList<Entry>(entries.values());
+    Collections.sort(entityEntries, new Comparator<Entry>() {
+      @Override
+      public int compare(Entry o1, Entry o2) {
+        long t1 = o1.getTotalTime();
+        long t2 = o2.getTotalTime();
+        return t1 < t2 ? 1 : t1 > t2 ? -1 : 0;
+      }
+    });
+
+    Entry totals = new Entry(null);
+    for (Entry entry : entityEntries) {
+      totals.add(entry);
+    }
+    totals.add(aggregates);
+
+    StringBuilder jsonBuilder = new StringBuilder();
+    jsonBuilder.append("{\n");
+    jsonBuilder.append("  \"totals\": ");
+    appendEntry(jsonBuilder, totals, "  ");
+    jsonBuilder.append(",\n  \"aggregates\": ");
+    appendEntry(jsonBuilder, aggregates, "  ");
+    jsonBuilder.append(",\n  \"entities\": [");
+
+    for (int i = 0, l = entityEntries.size(); i < l; i++) {
+      jsonBuilder.append(i > 0 ? ",\n    " : "\n    ");
+      appendEntry(jsonBuilder, entityEntries.get(i), "    ");
+    }
+
+    jsonBuilder.append(entityEntries.isEmpty() ? "],\n" : "\n  ],\n");
+    jsonBuilder.append("  \"caches\": [");
+
+    for (int i = 0, l = caches.size(); i < l; i++) {
+      IntrospectionCache<?, ?> cache = caches.get(i);
+      jsonBuilder
+        .append(i > 0 ? ",\n    " : "\n    ")
+        .append("{\"name\": ").append(quote(cache.getName()))
+        .append(", \"hits\": ").append(cache.getHits())
+        .append(", \"misses\": ").append(cache.getMisses())
+        .append('}');
+    }
+
+    jsonBuilder.append(caches.isEmpty() ? "]\n" : "\n  ]\n");
+    jsonBuilder.append("}\n");
+
+    return jsonBuilder.toString();
+  }
+
+  private void appendEntry(StringBuilder jsonBuilder, Entry entry, String indent) {
+    jsonBuilder.append('{');
+
+    if (entry.owner != null) {
+      jsonBuilder.append("\"entity\": ").append(quote(entry.owner)).append(", ");
+    }
+
+    jsonBuilder.append("\"totalMillis\": ").append(toMillis(entry.getTotalTime()));
+
+    for (String phase : PHASES) {
+      Long time = entry.times.get(phase);
+      jsonBuilder.append(", \"").append(phase).append("Millis\": ").append(toMillis(time != null ? time : 0));
+    }
+
+    jsonBuilder
+      .append(", \"fileCount\": ").append(entry.files.size())
+      .append(", \"bytes\": ").append(entry.getTotalBytes());
+
+    if (entry.owner != null || entry == aggregates) {
+      jsonBuilder.append(", \"files\": {");
+      boolean first = true;
+      for (Map.Entry<String, Long> file : entry.files.entrySet()) {
+        jsonBuilder
+          .append(first ? "\n" : ",\n")
+          .append(indent).append("  ")
+          .append(quote(file.getKey())).append(": ").append(file.getValue());
+        first = false;
+      }
+
+      if (!first) {
+        jsonBuilder.append('\n').append(indent);
+      }
+
+      jsonBuilder.append('}');
+    }
+
+    jsonBuilder.append('}');
+  }
+
+  private String toMillis(long nanos) {
+    return String.format(Locale.ROOT, "%.3f", nanos / 1000000d);
+  }
+
+  private String quote(String value) {
+    return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+  }
+
+  private Entry getEntry(String owner) {
+    if (owner == null) {
+      return aggregates;
+    }
+
+    Entry entry = entries.get(owner);
+    if (entry == null) {
+      entry = new Entry(owner);
+      entries.put(owner, entry);
+    }
+
+    return entry;
+  }
+
+  private Map<String, Entry> entries = new LinkedHashMap<String, Entry>();
+  private Entry aggregates = new Entry(null);
+  private List<IntrospectionCache<?, ?>> caches = new ArrayList<IntrospectionCache<?, ?>>();
+
+  private static class Entry {
+
+    public Entry(String owner) {
+      this.owner = owner;
+    }
+
+    public long getTotalTime() {
+      long result = 0;
+      for (Long time : times.values()) {
+        result += time;
+      }
+
+      return result;
+    }
+
+    public long getTotalBytes() {
+      long result = 0;
+      for (Long bytes : files.values()) {
+        result += bytes;
+      }
+
+      return result;
+    }
+
+    public void add(Entry entry) {
+      for (Map.Entry<String, Long> time : entry.times.entrySet()) {
+        Long current = times.get(time.getKey());
+        times.put(time.getKey(), current != null ? current + time.getValue() : time.getValue());
+      }
+
+      files.putAll(entry.files);
+    }
+
+    private String owner;
+    private Map<String, Long> times = new LinkedHashMap<String, Long>();
+    private Map<String, Long> files = new LinkedHashMap<String, Long>();
+  }
+}
@@ -1,24 +1,32 @@
 package fi.tranquil;
 
 import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.annotation.processing.AbstractProcessor;
 import javax.annotation.processing.RoundEnvironment;
 import javax.annotation.processing.SupportedAnnotationTypes;
-import javax.annotation.processing.SupportedOptions;
 import javax.annotation.processing.SupportedSourceVersion;
 import javax.lang.model.SourceVersion;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
 import javax.lang.model.element.PackageElement;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.type.DeclaredType;
@@ -27,8 +35,12 @@ import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
 import javax.lang.model.util.ElementFilter;
 import javax.lang.model.util.Types;
+import javax.persistence.Id;
 import javax.persistence.Transient;
+import javax.persistence.Version;
 import javax.tools.Diagnostic.Kind;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
 import javax.xml.bind.annotation.XmlTransient;
 
 import org.apache.commons.lang3.StringUtils;
@@ -37,112 +49,575 @@ import fi.tranquil.processing.TranquilityExpandedField;
 
 @SupportedAnnotationTypes({ "fi.tranquil.TranquilEntity", "javax.persistence.Entity" })
 @SupportedSourceVersion(SourceVersion.RELEASE_7)
-@SupportedOptions("lookupPackage")
 public class TranquilModelAnnotationProcessor extends AbstractProcessor {
 	
-  private Collection<? extends TypeElement> typeElements;
+  @Override
+  public Set<String> getSupportedOptions() {
+    Set<String> supportedOptions = new HashSet<String>(DEFAULT_OPTIONS.keySet());
+    
+    // Gradle incremental processing mode of a processor registered as dynamic
+    
+    if (processingEnv == null || isAggregating()) {
+      supportedOptions.add("org.gradle.annotation.processing.aggregating");
+    } else {
+      supportedOptions.add("org.gradle.annotation.processing.isolating");
+    }
+    
+    return supportedOptions;
+  }
   
   @Override
   public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
     if (round == 0) {
-      try {
-        typeElements = ElementFilter.typesIn(roundEnv.getRootElements());
-  
-        // Initialize class lookup property objects
-        
-        baseClasses = new HashMap<String, String>();
-        compactClasses = new HashMap<String, String>();
-        completeClasses = new HashMap<String, String>();
-        
-        // TODO: Should user be able to rename these classes?
+      // Initialize class lookup property objects
+      
+      baseClasses = new HashMap<String, String>();
+      compactClasses = new HashMap<String, String>();
+      completeClasses = new HashMap<String, String>();
+      modelIndex = new StringBuilder();
+      entities = new ArrayList<TypeElement>();
+      
+      if (getBooleanOption("generateReport")) {
+        report = new ProcessingReport();
+      }
+      
+      // TODO: Should user be able to rename these classes?
+      
+      processingEnv.getMessager().printMessage(Kind.NOTE, "TranquilModel using package " + getOption("lookupPackage"));
+      
+      // Support classes in the package of the runtime library would split the package between jars and 
+      // shadow each other when more than one module is compiled with the processor
+      
+      if (!getSupportClasses().isEmpty() && RUNTIME_PACKAGE.equals(getSupportPackage())) {
+        processingEnv.getMessager().printMessage(Kind.ERROR, "Support classes can not be generated into package " + RUNTIME_PACKAGE + 
+            " of the runtime library, set supportPackage (or lookupPackage) to a package of the module");
+      }
+      
+      if (getBooleanOption("generateModelCaches") && !isModelCachesEnabled()) {
+        processingEnv.getMessager().printMessage(Kind.WARNING, "Model caches are not generated, because they require generateCompact and generateCompactValues");
+      }
+    }
 
-        String usePackage = getOption("lookupPackage");
-        
-        processingEnv.getMessager().printMessage(Kind.NOTE, "TranquilModel using package " + usePackage);
-        
-        ModelClass baseLookup = new ModelClass(usePackage, "BaseLookup");
-        ModelClass compactLookup = new ModelClass(usePackage, "CompactLookup");
-        ModelClass completeLookup = new ModelClass(usePackage, "CompleteLookup");
-        
-        // Process entities
-        
-        for (TypeElement type : typeElements) {
-          processEntities(type);
-        } 
-        
-        // Add lookup properties
-        
-        ModelMethod lookupFindMethod = new ModelMethod("public", "Class<?>", "findTranquilModel", "Class<?> entity", "    return classes.get(entity);");
-        lookupFindMethod.addAnnotation("@Override");
-        
-        baseLookup.addInterface("fi.tranquil.processing.EntityLookup");
-        baseLookup.addConstructor("public", constructLookupConstructor(baseClasses), null);
-        baseLookup.addProperty("private", "java.util.Map<Class<?>, Class<?>>", "classes", "new java.util.HashMap<Class<?>, Class<?>>()");
-        baseLookup.addMethod(lookupFindMethod);
-        
-        compactLookup.addInterface("fi.tranquil.processing.EntityLookup");
-        compactLookup.addConstructor("public", constructLookupConstructor(compactClasses), null);
-        compactLookup.addProperty("private", "java.util.Map<Class<?>, Class<?>>", "classes", "new java.util.HashMap<Class<?>, Class<?>>()");
-        compactLookup.addMethod(lookupFindMethod);
-        
-        completeLookup.addInterface("fi.tranquil.processing.EntityLookup");
-        completeLookup.addConstructor("public", constructLookupConstructor(completeClasses), null);
-        completeLookup.addProperty("private", "java.util.Map<Class<?>, Class<?>>", "classes", "new java.util.HashMap<Class<?>, Class<?>>()");
-        completeLookup.addMethod(lookupFindMethod);
-        
-        // Write lookup classes
+    try {
+      // Process entities. Each entity produces its own isolated set of classes
+      
+      Set<TypeElement> roundEntities = new LinkedHashSet<TypeElement>();
+      for (TypeElement annotation : annotations) {
+        // Like the root elements processed before, only top level entities get models, because 
+        // models of nested classes would be generated with clashing or invalid names
         
-        if (!getBooleanOption("flatModel")) {
-          classWriter.writeClass(processingEnv.getFiler().createSourceFile(usePackage + ".BaseLookup"), baseLookup);
+        for (TypeElement type : ElementFilter.typesIn(roundEnv.getElementsAnnotatedWith(annotation))) {
+          if (type.getNestingKind() == NestingKind.TOP_LEVEL) {
+            roundEntities.add(type);
+          }
         }
-
-        if (getBooleanOption("generateCompact")) {
-          classWriter.writeClass(processingEnv.getFiler().createSourceFile(usePackage + ".CompactLookup"), compactLookup);
+      }
+      
+      for (TypeElement type : roundEntities) {
+        if (aggregatesWritten) {
+          processingEnv.getMessager().printMessage(Kind.WARNING, "Entity " + type + " was generated after lookup classes were written and it is missing from the lookups", type);
         }
         
-        if (getBooleanOption("generateComplete")) {
-          classWriter.writeClass(processingEnv.getFiler().createSourceFile(usePackage + ".CompleteLookup"), completeLookup);
-        }
-      } catch (IOException e) {
-        processingEnv.getMessager().printMessage(Kind.ERROR, e.getMessage());
+        processEntities(type);
+      }
+      
+      // Write classes that aggregate all entities once a round does not produce any new entities
+      
+      if (!aggregatesWritten && (roundEntities.isEmpty() || roundEnv.processingOver())) {
+        writeAggregates();
+        aggregatesWritten = true;
+      }
+      
+      writeQueuedClasses();
+      
+      if (report != null && roundEnv.processingOver()) {
+        writeReport();
       }
+    } catch (IOException e) {
+      processingEnv.getMessager().printMessage(Kind.ERROR, e.getMessage());
     }
     
     round++;
 
     return false;
   }
+  
+  /**
+   * Writes lookup classes, model index and support classes. Unlike the model classes these depend 
+   * on all processed entities, which makes the processor aggregating when any of these are generated.
+   * 
+   * @throws IOException when files could not be written.
+   */
+  private void writeAggregates() throws IOException {
+    String usePackage = getOption("lookupPackage");
+    
+    // Write lookup classes
+    
+    if (getBooleanOption("generateLookups")) {
+      if (!getBooleanOption("flatModel")) {
+        writeLookup(usePackage, "BaseLookup", baseClasses);
+      }
+  
+      if (getBooleanOption("generateCompact")) {
+        writeLookup(usePackage, "CompactLookup", compactClasses);
+      }
+      
+      if (getBooleanOption("generateComplete")) {
+        writeLookup(usePackage, "CompleteLookup", completeClasses);
+      }
+    }
+    
+    // Write model index
+    
+    if (getBooleanOption("generateModelIndex")) {
+      writeModelIndex();
+    }
+    
+    // Write support classes
+    
+    if (getBooleanOption("generateSupportClasses")) {
+      for (String supportClass : getSupportClasses()) {
+        writeSupportClass(supportClass);
+      }
+    }
+  }
+  
+  /**
+   * Returns names of support classes required by the generated models
+   * 
+   * @return names of support classes 
+   */
+  private List<String> getSupportClasses() {
+    List<String> result = new ArrayList<String>();
+    
+    if (isAccessorsEnabled()) {
+      result.add("ModelAccessor");
+    }
+    
+    if (getBooleanOption("generateFieldMasks")) {
+      result.add("FieldMask");
+    }
+    
+    if (getBooleanOption("generateModelIndex")) {
+      result.add("IndexLookup");
+    }
+    
+    if (getBooleanOption("generateJsonWriters")) {
+      result.add("JsonWritable");
+      result.add("JsonOutput");
+    }
+    
+    if (getBooleanOption("generateBinaryCodecs")) {
+      result.add("BinaryCodec");
+    }
+    
+    if (getBooleanOption("primitiveIdLists") || getBooleanOption("generateBinaryCodecs")) {
+      result.add("LongIdList");
+      result.add("IntIdList");
+    }
+    
+    if (getBooleanOption("generateExpandedResolvers")) {
+      result.add("ExpandedResolver");
+      result.add("ExpandedFields");
+    }
+    
+    if (getBooleanOption("generateReset")) {
+      result.add("ResettableModel");
+      result.add("ModelPool");
+    }
+    
+    if (getBooleanOption("generateChunkedMappers")) {
+      result.add("ChunkListener");
+      result.add("ChunkedIterator");
+    }
+    
+    if (getBooleanOption("generateParallelMappers")) {
+      result.add("ParallelConverter");
+    }
+    
+    if (getBooleanOption("generateCompactValues")) {
+      result.add("ModelInterner");
+    }
+    
+    if (isModelCachesEnabled()) {
+      result.add("ModelCache");
+    }
+    
+    return result;
+  }
+  
+  /**
+   * Returns whether processor generates files that depend on more than one entity
+   * 
+   * @return whether processor generates files that depend on more than one entity
+   */
+  private boolean isAggregating() {
+    if (getBooleanOption("generateLookups") || getBooleanOption("generateModelIndex") || getBooleanOption("generateReport")) {
+      return true;
+    }
+    
+    return getBooleanOption("generateSupportClasses") && !getSupportClasses().isEmpty();
+  }
+
+  /**
+   * Writes lookup class. Entities are split into shards by hash code of the entity class name and each shard
+   * is written into its own class, which is initialized on first lookup into the shard.
+   * 
+   * @param packageName package of the lookup class
+   * @param className name of the lookup class
+   * @param classes map of entity classes to tranquil model classes
+   * @throws IOException when class files could not be written.
+   */
+  private void writeLookup(String packageName, String className, Map<String, String> classes) throws IOException {
+    int shardSize = getIntegerOption("lookupShardSize");
+    int shardCount = Math.max(1, (classes.size() + shardSize - 1) / shardSize);
+    
+    List<Map<String, String>> shards = new ArrayList<Map<String, String>>(shardCount);
+    for (int i = 0; i < shardCount; i++) {
+      shards.add(new HashMap<String, String>());
+    }
+    
+    for (String entityClass : classes.keySet()) {
+      shards.get(getLookupShard(entityClass, shardCount)).put(entityClass, classes.get(entityClass));
+    }
+    
+    StringBuilder bodyBuilder = new StringBuilder();
+    bodyBuilder.append("    switch ((entity.getName().hashCode() & 0x7fffffff) % ").append(shardCount).append(") {\n");
+    
+    for (int i = 0; i < shardCount; i++) {
+      String shardName = className + "Shard" + i;
+      
+      ModelClass shardClass = new ModelClass(packageName, shardName);
+      shardClass.addMethod("static", "Class<?>", "findTranquilModel", "Class<?> entity", "    return classes.get(entity);");
+      shardClass.addMethod("private static", "java.util.Map<Class<?>, Class<?>>", "createClasses", null, constructLookupClasses(shards.get(i)));
+      shardClass.addProperty("private final static", "java.util.Map<Class<?>, Class<?>>", "classes", "createClasses()");
+      queueAggregateClass(packageName + '.' + shardName, shardClass);
+      
+      bodyBuilder
+        .append("      case ").append(i).append(":\n")
+        .append("        return ").append(shardName).append(".findTranquilModel(entity);\n");
+    }
+    
+    bodyBuilder
+      .append("    }\n")
+      .append('\n')
+      .append("    return null;");
+    
+    StringBuilder resolveBuilder = new StringBuilder();
+    resolveBuilder
+      .append("    for (Class<?> current = entity; current != null; current = current.getSuperclass()) {\n")
+      .append("      Class<?> model = findShardModel(current);\n")
+      .append("      if (model != null) {\n")
+      .append("        return model;\n")
+      .append("      }\n")
+      .append("    }\n")
+      .append('\n')
+      .append("    return NOT_FOUND;");
+    
+    StringBuilder findBuilder = new StringBuilder();
+    findBuilder
+      .append("    if (entity == null) {\n")
+      .append("      return null;\n")
+      .append("    }\n")
+      .append('\n')
+      .append("    Class<?> model = models.get(entity);\n")
+      .append("    return model != NOT_FOUND ? model : null;");
+    
+    StringBuilder modelsBuilder = new StringBuilder();
+    modelsBuilder
+      .append("new ClassValue<Class<?>>() {\n")
+      .append("    @Override\n")
+      .append("    protected Class<?> computeValue(Class<?> type) {\n")
+      .append("      return resolveModel(type);\n")
+      .append("    }\n")
+      .append("  }");
+    
+    // Results are memoized per runtime class, so proxy and subclass lookups walk the class hierarchy only once 
+    
+    ModelClass lookupClass = new ModelClass(packageName, className);
+    lookupClass.addInterface("fi.tranquil.processing.EntityLookup");
+    lookupClass.addMethod("public", "Class<?>", "findTranquilModel", "Class<?> entity", findBuilder.toString()).addAnnotation("@Override");
+    lookupClass.addMethod("private static", "Class<?>", "resolveModel", "Class<?> entity", resolveBuilder.toString());
+    lookupClass.addMethod("private static", "Class<?>", "findShardModel", "Class<?> entity", bodyBuilder.toString());
+    lookupClass.addProperty("private final static", "Class<?>", "NOT_FOUND", "Void.class");
+    lookupClass.addProperty("private final static", "ClassValue<Class<?>>", "models", modelsBuilder.toString());
+    queueAggregateClass(packageName + '.' + className, lookupClass);
+  }
+  
+  /**
+   * Returns lookup shard of an entity class. Matches String.hashCode based shard selection of generated lookup classes.
+   * 
+   * @param entityClass name of the entity class
+   * @param shardCount number of shards
+   * @return lookup shard index
+   */
+  private int getLookupShard(String entityClass, int shardCount) {
+    return (entityClass.hashCode() & 0x7fffffff) % shardCount;
+  }
 
-	private String constructLookupConstructor(Map<String, String> classes) {
+  private String constructLookupClasses(Map<String, String> classes) {
     StringBuilder bodyBuilder = new StringBuilder();
-    boolean first = true;
+    bodyBuilder.append("    java.util.Map<Class<?>, Class<?>> classes = new java.util.HashMap<Class<?>, Class<?>>();\n");
 
     for (String entityClass : classes.keySet()) {
       String tranquilClass = classes.get(entityClass);
       
-      if (!first) {
-        bodyBuilder.append('\n');
-      }
-      
       bodyBuilder
         .append("    classes.put(")
         .append(entityClass)
         .append(".class, ")
         .append(tranquilClass)
-        .append(".class);");
-      first = false;
+        .append(".class);\n");
     }
     
+    bodyBuilder.append("    return classes;");
+    
     return bodyBuilder.toString();
   }
   
+  /**
+   * Adds an entity into the model index. Each line of the index contains tab separated binary names of the 
+   * entity and its base, compact and complete models followed by comma separated base and complex property names. 
+   * Names of models that are not generated are left empty.
+   * 
+   * @param binaryName binary name of the entity
+   * @param baseModel binary name of the base model or null if base model is not generated
+   * @param baseProperties base property names 
+   * @param complexProperties complex property names
+   */
+  private void addModelIndexEntry(String binaryName, String baseModel, List<String> baseProperties, List<String> complexProperties) {
+    modelIndex
+      .append(binaryName).append('\t')
+      .append(baseModel != null ? baseModel : "").append('\t')
+      .append(getBooleanOption("generateCompact") ? binaryName + getOption("compactPostfix") : "").append('\t')
+      .append(getBooleanOption("generateComplete") ? binaryName + getOption("completePostfix") : "").append('\t')
+      .append(StringUtils.join(baseProperties, ",")).append('\t')
+      .append(StringUtils.join(complexProperties, ",")).append('\n');
+  }
+  
+  private void writeModelIndex() throws IOException {
+    long startTime = System.nanoTime();
+    String contents = "# entity\tbase\tcompact\tcomplete\tbase properties\tcomplex properties\n" + modelIndex;
+    FileObject indexFile = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", MODEL_INDEX_RESOURCE, getEntityElements());
+    classWriter.writeFile(indexFile, contents);
+    recordFile(null, MODEL_INDEX_RESOURCE, contents, startTime);
+  }
+  
+  /**
+   * Writes processing report into source output. Report covers all rounds, so it is written when processing is over.
+   * 
+   * @throws IOException when report could not be written
+   */
+  private void writeReport() throws IOException {
+    report.addCache(classTreeCache);
+    report.addCache(classPropertyCache);
+    report.addCache(fieldIndexCache);
+    report.addCache(idTypeCache);
+    report.addCache(collectionCache);
+    
+    FileObject reportFile = processingEnv.getFiler().createResource(StandardLocation.SOURCE_OUTPUT, "", REPORT_RESOURCE, getEntityElements());
+    classWriter.writeFile(reportFile, report.toJson());
+  }
+  
+  /**
+   * Queues a class generated from an entity to be written at the end of the processing round. 
+   * Class must not be modified after it has been queued.
+   * 
+   * @param name fully qualified name of the source file 
+   * @param modelClass class
+   * @param entity entity the class was generated from
+   */
+  private void queueClass(String name, ModelClass modelClass, TypeElement entity) {
+    queuedClasses.add(new QueuedClass(name, modelClass, entity.getQualifiedName().toString(), new Element[] { entity }));
+  }
+  
+  /**
+   * Queues a class generated from all entities to be written at the end of the processing round. 
+   * Class must not be modified after it has been queued.
+   * 
+   * @param name fully qualified name of the source file 
+   * @param modelClass class
+   */
+  private void queueAggregateClass(String name, ModelClass modelClass) {
+    queuedClasses.add(new QueuedClass(name, modelClass, null, getEntityElements()));
+  }
+  
+  /**
+   * Renders all queued classes and writes them into files. Rendering is done in parallel when renderThreads option 
+   * is greater than one, but files are always created and written by the processing thread.
+   * 
+   * @throws IOException when files could not be written
+   */
+  private void writeQueuedClasses() throws IOException {
+    long[] renderTimes = new long[queuedClasses.size()];
+    List<String> sources = renderQueuedClasses(renderTimes);
+    
+    for (int i = 0, l = queuedClasses.size(); i < l; i++) {
+      QueuedClass queuedClass = queuedClasses.get(i);
+      long startTime = System.nanoTime();
+      classWriter.writeFile(processingEnv.getFiler().createSourceFile(queuedClass.name, queuedClass.originatingElements), sources.get(i));
+      
+      if (report != null) {
+        report.addTime(queuedClass.owner, ProcessingReport.PHASE_RENDER, renderTimes[i]);
+        recordFile(queuedClass.owner, queuedClass.name, sources.get(i), startTime);
+      }
+    }
+    
+    queuedClasses.clear();
+  }
+
+  private List<String> renderQueuedClasses(final long[] renderTimes) throws IOException {
+    List<String> result = new ArrayList<String>(queuedClasses.size());
+    int renderThreads = Math.min(getIntegerOption("renderThreads"), queuedClasses.size());
+    
+    if (renderThreads <= 1) {
+      for (int i = 0, l = queuedClasses.size(); i < l; i++) {
+        long startTime = System.nanoTime();
+        result.add(classWriter.renderClass(queuedClasses.get(i).modelClass));
+        renderTimes[i] = System.nanoTime() - startTime;
+      }
+      
+      return result;
+    }
+    
+    ExecutorService executor = Executors.newFixedThreadPool(renderThreads);
+    try {
+      List<Future<String>> futures = new ArrayList<Future<String>>(queuedClasses.size());
+      for (int i = 0, l = queuedClasses.size(); i < l; i++) {
+        final int index = i;
+        final QueuedClass queuedClass = queuedClasses.get(i);
+        futures.add(executor.submit(new Callable<String>() {
+          @Override
+          public String call() {
+            long startTime = System.nanoTime();
+            String source = classWriter.renderClass(queuedClass.modelClass);
+            renderTimes[index] = System.nanoTime() - startTime;
+            return source;
+          }
+        }));
+      }
+      
+      for (Future<String> future : futures) {
+        result.add(future.get());
+      }
+      
+      return result;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while rendering classes", e);
+    } catch (ExecutionException e) {
+      throw new IOException("Failed to render classes", e.getCause());
+    } finally {
+      executor.shutdown();
+    }
+  }
+  
+  private Element[] getEntityElements() {
+    return entities.toArray(new Element[entities.size()]);
+  }
+  
+  private void writeSupportClass(String name) throws IOException {
+    long startTime = System.nanoTime();
+    String source;
+    if ("LongIdList".equals(name)) {
+      source = renderIdListTemplate(name, "Long", "Long", "long");
+    } else if ("IntIdList".equals(name)) {
+      source = renderIdListTemplate(name, "Int", "Integer", "int");
+    } else {
+      source = classWriter.renderTemplate(getSupportPackage(), name);
+    }
+    
+    classWriter.writeFile(processingEnv.getFiler().createSourceFile(getSupportClassName(name)), source);
+    recordFile(null, getSupportClassName(name), source, startTime);
+  }
+  
+  /**
+   * Renders a primitive id list class from the id list template shared by all id types
+   * 
+   * @param name name of the id list class
+   * @param typeName name of the id type used in method names (e.g. addLong)
+   * @param boxedType boxed id type
+   * @param primitiveType primitive id type
+   * @return source code of the id list class
+   * @throws IOException when template could not be read
+   */
+  private String renderIdListTemplate(String name, String typeName, String boxedType, String primitiveType) throws IOException {
+    Map<String, String> variables = new HashMap<String, String>();
+    variables.put("IdList", name);
+    variables.put("Name", typeName);
+    variables.put("Boxed", boxedType);
+    variables.put("primitive", primitiveType);
+    return classWriter.renderTemplate(getSupportPackage(), "IdList", variables);
+  }
+  
+  /**
+   * Records a written file and time spent writing it into the processing report, if report is being generated
+   * 
+   * @param owner qualified name of the entity the file was generated from or null for aggregates
+   * @param name name of the file
+   * @param contents contents of the file
+   * @param startTime time writing was started at
+   */
+  private void recordFile(String owner, String name, String contents, long startTime) {
+    if (report != null) {
+      report.addTime(owner, ProcessingReport.PHASE_WRITE, System.nanoTime() - startTime);
+      report.addFile(owner, name, contents.getBytes(UTF_8).length);
+    }
+  }
+  
+  /**
+   * Records time spent in a phase into the processing report, if report is being generated
+   * 
+   * @param entity entity being processed
+   * @param phase phase
+   * @param startTime time the phase was started at
+   */
+  private void recordTime(TypeElement entity, String phase, long startTime) {
+    if (report != null) {
+      report.addTime(entity.getQualifiedName().toString(), phase, System.nanoTime() - startTime);
+    }
+  }
+  
+  /**
+   * Returns whether mappers cache compact values. Caches hold immutable compact values only, so they 
+   * are generated only together with the compact value classes.
+   * 
+   * @return whether model caches are generated
+   */
+  private boolean isModelCachesEnabled() {
+    return getBooleanOption("generateModelCaches") && getBooleanOption("generateCompactValues") && getBooleanOption("generateCompact");
+  }
+  
+  private boolean isAccessorsEnabled() {
+    return getBooleanOption("generateAccessors") || getBooleanOption("generateFieldMasks");
+  }
+  
+  private String getSupportClassName(String name) {
+    return getSupportPackage() + '.' + name;
+  }
+  
+  /**
+   * Returns package of the support classes. Support classes are generated into every module compiled with 
+   * the processor, so the package has to be specific to the module (or to a module sharing its support classes 
+   * with generateSupportClasses=false). Defaults to lookupPackage.
+   * 
+   * @return package of the support classes
+   */
+  private String getSupportPackage() {
+    String supportPackage = getOption("supportPackage");
+    return StringUtils.isNotBlank(supportPackage) ? supportPackage : getOption("lookupPackage");
+  }
+  
   private void note(String msg) {
-    processingEnv.getMessager().printMessage(Kind.NOTE, msg);
+    if (getBooleanOption("verbose")) {
+      processingEnv.getMessager().printMessage(Kind.NOTE, msg);
+    }
   }
 
   private void processEntities(TypeElement type) throws IOException {
     if (isEntity(type)) {
       processEntity(type);
+      entities.add(type);
     }
   }
   
@@ -154,6 +629,10 @@ public class TranquilModelAnnotationProcessor extends AbstractProcessor {
    * @return class hierarchy
    */
   private List<TypeElement> resolveClassTree(TypeElement typeElement) {
+    if (classTreeCache.containsKey(typeElement)) {
+      return classTreeCache.get(typeElement);
+    }
+    
     List<TypeElement> classTree = new ArrayList<>();
     
     classTree.add(typeElement);
@@ -167,24 +646,79 @@ public class TranquilModelAnnotationProcessor extends AbstractProcessor {
         }
       }
     } else if (typeElement.getKind() == ElementKind.CLASS) {
+      // Super class trees are shared between entities, so they are resolved (and cached) recursively
+      
       TypeMirror superclassTypeMirror = typeElement.getSuperclass();
-      while ((superclassTypeMirror != null) && (superclassTypeMirror.getKind() != TypeKind.NONE)) {
-        DeclaredType superclassDeclaredType = (DeclaredType) (superclassTypeMirror.getKind() == TypeKind.DECLARED ? superclassTypeMirror : null);
-        if (superclassDeclaredType != null) {
-          TypeElement superclassTypeElement = (TypeElement) superclassDeclaredType.asElement();
-          if (superclassTypeElement.getSuperclass().getKind() != TypeKind.NONE) {
-            classTree.add(superclassTypeElement);
+      if (superclassTypeMirror.getKind() == TypeKind.DECLARED) {
+        TypeElement superclassTypeElement = (TypeElement) ((DeclaredType) superclassTypeMirror).asElement();
+        if (superclassTypeElement.getSuperclass().getKind() != TypeKind.NONE) {
+          classTree.addAll(resolveClassTree(superclassTypeElement));
+        }
+      }
+    }
+    
+    return classTreeCache.put(typeElement, classTree);
+  }
+  
+  /**
+   * Resolves properties declared in a single class of a class tree. Results are cached, because 
+   * mapped super classes are shared by many entities.
+   * 
+   * @param currentClass class
+   * @return properties declared in the class
+   */
+  private List<ClassProperty> resolveClassProperties(TypeElement currentClass) {
+    if (classPropertyCache.containsKey(currentClass)) {
+      return classPropertyCache.get(currentClass);
+    }
+    
+    List<ClassProperty> result = new ArrayList<ClassProperty>();
+    
+    for (Element element : currentClass.getEnclosedElements()) {
+      if (element.getKind() == ElementKind.METHOD) {
+        String methodName = element.getSimpleName().toString();
+        if (StringUtils.startsWith(methodName, "get")) {
+        	boolean skip = (element.getAnnotation(Transient.class) != null) || (element.getAnnotation(XmlTransient.class) != null);
+          String propertyName = getPropertyName(element);
+          if (skip == false) {
+            Element fieldElement = findField(currentClass, propertyName);
+            if (fieldElement != null) {
+            	skip = (fieldElement.getAnnotation(Transient.class) != null) || (fieldElement.getAnnotation(XmlTransient.class) != null);
+            }
           }
-          
-          superclassTypeMirror = superclassTypeElement.getSuperclass();
+
+          // TODO: Skip JSONIgnore ?
+          if (!skip) {
+            TypeMirror methodReturnType = getMethodReturnType(element);
+            if (isEntity(methodReturnType)) {
+              result.add(new ClassProperty(propertyName, element, PropertyCategory.COMPLEX));
+            } else {
+              if (isCollection(methodReturnType)) {
+                TypeMirror listGenericType = getListGenericType((DeclaredType) methodReturnType);
+
+                if (listGenericType.getKind() == TypeKind.DECLARED && isEntity(((DeclaredType) listGenericType).asElement())) {
+                  result.add(new ClassProperty(propertyName, element, PropertyCategory.COMPLEX_LIST));
+                } else {
+                  result.add(new ClassProperty(propertyName, element, PropertyCategory.BASE));
+                }
+              } else {
+                result.add(new ClassProperty(propertyName, element, PropertyCategory.BASE));
+              }
+            }
+          }
+        }
+      }
+      else if (element.getKind() == ElementKind.FIELD) {
+        if (element.getAnnotation(TranquilityEntityField.class) != null) {
+          result.add(new ClassProperty(getPropertyName(element), element, PropertyCategory.EXPANDED));
         }
       }
     }
     
-    return classTree;
+    return classPropertyCache.put(currentClass, result);
   }
 
-  private void writeClassesFlat(String packageName, String className, String qualifiedName, String binaryName, List<Element> baseProperties, List<Element> complexProperties, List<Element> expandedProperties, List<Element> complexListProperties) throws IOException {
+  private void writeClassesFlat(TypeElement entity, String packageName, String className, String qualifiedName, String binaryName, List<Element> baseProperties, List<Element> complexProperties, List<Element> expandedProperties, List<Element> complexListProperties) throws IOException {
     ModelClass compactClass = new ModelClass(packageName, className + getOption("compactPostfix"));
     ModelClass completeClass = new ModelClass(packageName, className + getOption("completePostfix"));
     
@@ -233,25 +767,78 @@ public class TranquilModelAnnotationProcessor extends AbstractProcessor {
     compactClasses.put(fullyQualifiedClassName, compactClass.getFullyQualifiedName());
     completeClasses.put(fullyQualifiedClassName, completeClass.getFullyQualifiedName());
     
-    // Add original properties field into tranquil class
+    // Add classes into model index
     
-    compactClass.addProperty("public final static", "String[]", "properties", "{" + joinProperties(originalProperties) + "}");
-    completeClass.addProperty("public final static", "String[]", "properties", "{" + joinProperties(originalProperties) + "}");
+    if (getBooleanOption("generateModelIndex")) {
+      List<String> indexPropertiesBase = new ArrayList<String>();
+      List<String> indexPropertiesComplex = new ArrayList<String>();
+      resolveOriginalProperties(baseProperties, complexProperties, expandedProperties, complexListProperties, indexPropertiesBase, indexPropertiesComplex);
+      addModelIndexEntry(binaryName, null, indexPropertiesBase, indexPropertiesComplex);
+    }
     
-    // Write classes
+    // Add ordinal property accessors
     
-    if (getBooleanOption("generateCompact")) {
-      note("Writing class: " + compactClass.getFullyQualifiedName());
-      classWriter.writeClass(processingEnv.getFiler().createSourceFile(binaryName + getOption("compactPostfix")), compactClass);
+    if (isAccessorsEnabled()) {
+      addPropertyAccessor(compactClass);
+      addPropertyAccessor(completeClass);
+    }
+    
+    // Add streaming JSON writers
+    
+    if (getBooleanOption("generateJsonWriters")) {
+      addJsonWriter(compactClass);
+      addJsonWriter(completeClass);
+    }
+    
+    // Add binary codecs
+    
+    if (getBooleanOption("generateBinaryCodecs")) {
+      addBinaryCodec(compactClass);
+      addBinaryCodec(completeClass);
+    }
+    
+    // Add batch resolution of expanded fields
+    
+    if (getBooleanOption("generateExpandedResolvers")) {
+      addExpandedResolution(completeClass, expandedProperties);
+    }
+    
+    // Add reset methods for reusing models
+    
+    if (getBooleanOption("generateReset")) {
+      addReset(compactClass);
+      addReset(completeClass);
+    }
+    
+    // Add original properties field into tranquil class
+    
+    compactClass.addProperty("public final static", "String[]", "properties", "{" + joinProperties(originalProperties) + "}");
+    completeClass.addProperty("public final static", "String[]", "properties", "{" + joinProperties(originalProperties) + "}");
+    
+    // Write classes
+    
+    if (getBooleanOption("generateCompact")) {
+      note("Writing class: " + compactClass.getFullyQualifiedName());
+      queueClass(binaryName + getOption("compactPostfix"), compactClass, entity);
+      
+      if (getBooleanOption("generateCompactValues")) {
+        writeCompactValue(entity, binaryName, compactClass);
+      }
     }
 
     if (getBooleanOption("generateComplete")) {
       note("Writing class: " + completeClass.getFullyQualifiedName());
-      classWriter.writeClass(processingEnv.getFiler().createSourceFile(binaryName + getOption("completePostfix")), completeClass);
+      queueClass(binaryName + getOption("completePostfix"), completeClass, entity);
+    }
+    
+    // Write mapper
+    
+    if (getBooleanOption("generateMappers")) {
+      writeMapper(entity, packageName, className, qualifiedName, binaryName, null, compactClass, completeClass, baseProperties, complexProperties, complexListProperties);
     }
   }
   
-  private void writeClasses(String packageName, String className, String qualifiedName, String binaryName, List<Element> baseProperties, List<Element> complexProperties, List<Element> expandedProperties, List<Element> complexListProperties) throws IOException {
+  private void writeClasses(TypeElement entity, String packageName, String className, String qualifiedName, String binaryName, List<Element> baseProperties, List<Element> complexProperties, List<Element> expandedProperties, List<Element> complexListProperties) throws IOException {
   	ModelClass baseClass = new ModelClass(packageName, className + getOption("basePostfix"));
     ModelClass compactClass = new ModelClass(packageName, className + getOption("compactPostfix"), baseClass);
     ModelClass completeClass = new ModelClass(packageName, className + getOption("completePostfix"), baseClass);
@@ -306,36 +893,1125 @@ public class TranquilModelAnnotationProcessor extends AbstractProcessor {
     compactClasses.put(fullyQualifiedClassName, compactClass.getFullyQualifiedName());
     completeClasses.put(fullyQualifiedClassName, completeClass.getFullyQualifiedName());
     
+    // Add classes into model index
+    
+    if (getBooleanOption("generateModelIndex")) {
+      addModelIndexEntry(binaryName, binaryName + getOption("basePostfix"), originalPropertiesBase, originalPropertiesComplex);
+    }
+    
+    // Add ordinal property accessors
+    
+    if (isAccessorsEnabled()) {
+      addPropertyAccessor(baseClass);
+      addPropertyAccessor(compactClass);
+      addPropertyAccessor(completeClass);
+    }
+    
+    // Add streaming JSON writers
+    
+    if (getBooleanOption("generateJsonWriters")) {
+      addJsonWriter(baseClass);
+      addJsonWriter(compactClass);
+      addJsonWriter(completeClass);
+    }
+    
+    // Add binary codecs. Only the leaf classes get codecs, because a static fromBinary of a Base class would 
+    // be inherited by its subclasses and an inherited codec would silently drop properties of the subclass
+    
+    if (getBooleanOption("generateBinaryCodecs")) {
+      addBinaryCodec(compactClass);
+      addBinaryCodec(completeClass);
+    }
+    
+    // Add batch resolution of expanded fields
+    
+    if (getBooleanOption("generateExpandedResolvers")) {
+      addExpandedResolution(completeClass, expandedProperties);
+    }
+    
+    // Add reset methods for reusing models
+    
+    if (getBooleanOption("generateReset")) {
+      addReset(baseClass);
+      addReset(compactClass);
+      addReset(completeClass);
+    }
+    
     // Add original properties field into tranquil class
     
-    baseClass.addProperty("public final static", "String[]", "properties", "{" + joinProperties(originalPropertiesBase) + "}");
-    compactClass.addProperty("public final static", "String[]", "properties", "{" + joinProperties(originalPropertiesComplex) + "}");
-    completeClass.addProperty("public final static", "String[]", "properties", "{" + joinProperties(originalPropertiesComplex) + "}");
+    baseClass.addProperty("public final static", "String[]", "properties", "{" + joinProperties(originalPropertiesBase) + "}");
+    compactClass.addProperty("public final static", "String[]", "properties", "{" + joinProperties(originalPropertiesComplex) + "}");
+    completeClass.addProperty("public final static", "String[]", "properties", "{" + joinProperties(originalPropertiesComplex) + "}");
+    
+    // Write classes
+    
+    note("Writing class: " + baseClass.getFullyQualifiedName());
+    queueClass(binaryName + getOption("basePostfix"), baseClass, entity);
+   
+    if (getBooleanOption("generateCompact")) {
+      note("Writing class: " + compactClass.getFullyQualifiedName());
+      queueClass(binaryName + getOption("compactPostfix"), compactClass, entity);
+      
+      if (getBooleanOption("generateCompactValues")) {
+        writeCompactValue(entity, binaryName, compactClass);
+      }
+    }
+
+    if (getBooleanOption("generateComplete")) {
+      note("Writing class: " + completeClass.getFullyQualifiedName());
+      queueClass(binaryName + getOption("completePostfix"), completeClass, entity);
+    }
+    
+    // Write mapper
+    
+    if (getBooleanOption("generateMappers")) {
+      writeMapper(entity, packageName, className, qualifiedName, binaryName, baseClass, compactClass, completeClass, baseProperties, complexProperties, complexListProperties);
+    }
+  }
+
+  /**
+   * Writes mapper class that populates tranquil models directly from entity getters.
+   * 
+   * @param baseClass base model class or null when flat model is used
+   */
+  private void writeMapper(TypeElement entity, String packageName, String className, String qualifiedName, String binaryName, ModelClass baseClass, ModelClass compactClass, ModelClass completeClass, 
+      List<Element> baseProperties, List<Element> complexProperties, List<Element> complexListProperties) throws IOException {
+    ModelClass mapperClass = new ModelClass(packageName, className + getOption("mapperPostfix"));
+    mapperClass.addConstructor("private", "", null);
+    
+    if (baseClass != null) {
+      addMapperMethods(mapperClass, qualifiedName, baseClass, "Base", 
+          constructBasePopulation(packageName, baseProperties));
+    }
+    
+    if (getBooleanOption("generateCompact")) {
+      StringBuilder bodyBuilder = new StringBuilder();
+      if (baseClass != null) {
+        bodyBuilder.append("    populateBase(entity, model);\n");
+      } else {
+        bodyBuilder.append(constructBasePopulation(packageName, baseProperties));
+      }
+      
+      bodyBuilder
+        .append(constructCompactComplexPopulation(packageName, complexProperties))
+        .append(constructCompactListPopulation(packageName, complexListProperties));
+      
+      addMapperMethods(mapperClass, qualifiedName, compactClass, "Compact", bodyBuilder);
+      
+      if (isModelCachesEnabled()) {
+        addCachedMapperMethod(mapperClass, packageName, className, qualifiedName, compactClass, baseProperties);
+      }
+    }
+    
+    if (getBooleanOption("generateComplete")) {
+      StringBuilder bodyBuilder = new StringBuilder();
+      if (baseClass != null) {
+        bodyBuilder.append("    populateBase(entity, model);\n");
+      } else {
+        bodyBuilder.append(constructBasePopulation(packageName, baseProperties));
+      }
+      
+      String nestedMethod = getNestedMapperMethod();
+      if (nestedMethod != null) {
+        mapperClass.addImport(TranquilModelEntity.class.getCanonicalName());
+        bodyBuilder
+          .append(constructCompleteComplexPopulation(packageName, complexProperties, nestedMethod))
+          .append(constructCompleteListPopulation(packageName, complexListProperties, nestedMethod));
+      }
+      
+      addMapperMethods(mapperClass, qualifiedName, completeClass, "Complete", bodyBuilder);
+      
+      if (getBooleanOption("generateLazyModels") && nestedMethod != null) {
+        writeLazyModel(entity, packageName, qualifiedName, binaryName, mapperClass, completeClass, baseClass != null, baseProperties, complexProperties, complexListProperties, nestedMethod);
+      }
+    }
+    
+    note("Writing class: " + mapperClass.getFullyQualifiedName());
+    queueClass(binaryName + getOption("mapperPostfix"), mapperClass, entity);
+  }
+  
+  /**
+   * Writes lazy variant of complete class. Base properties are populated when the model is created, complex 
+   * and complex list properties on first access of their getters from the entity captured by the model. 
+   * Model keeps the entity until it is materialized or detached, after which unloaded properties stay null.
+   */
+  private void writeLazyModel(TypeElement entity, String packageName, String qualifiedName, String binaryName, ModelClass mapperClass, ModelClass completeClass, boolean populateBase, 
+      List<Element> baseProperties, List<Element> complexProperties, List<Element> complexListProperties, String nestedMethod) {
+    String lazyPostfix = getOption("completePostfix") + "Lazy";
+    ModelClass lazyClass = new ModelClass(packageName, entity.getSimpleName() + lazyPostfix, completeClass);
+    lazyClass.addImport(TranquilModelEntity.class.getCanonicalName());
+    lazyClass.addConstructor("public", "    this.entity = entity;", qualifiedName + " entity");
+    
+    StringBuilder materializeBuilder = new StringBuilder();
+    int bit = 0;
+    
+    for (Element element : complexProperties) {
+      if (isAccessible(element, packageName)) {
+        String population = constructCompleteComplexPopulation(packageName, Arrays.asList(element), nestedMethod, "super");
+        addLazyAccessors(lazyClass, getPropertyName(element), "TranquilModelEntity", population, bit++);
+        materializeBuilder.append("    get").append(StringUtils.capitalize(getPropertyName(element))).append("();\n");
+      }
+    }
+    
+    for (Element element : complexListProperties) {
+      if (isAccessible(element, packageName)) {
+        String population = constructCompleteListPopulation(packageName, Arrays.asList(element), nestedMethod, "super");
+        addLazyAccessors(lazyClass, getPropertyName(element), "java.util.List<TranquilModelEntity>", population, bit++);
+        materializeBuilder.append("    get").append(StringUtils.capitalize(getPropertyName(element))).append("();\n");
+      }
+    }
+    
+    materializeBuilder.append("    detach();");
+    
+    lazyClass.addMethod("public", "void", "materialize", null, materializeBuilder.toString());
+    lazyClass.addMethod("public", "void", "detach", null, "    entity = null;");
+    
+    lazyClass.addProperty(qualifiedName, "entity");
+    for (int i = 0, l = (bit + 31) >>> 5; i < l; i++) {
+      lazyClass.addProperty("int", "loaded" + i);
+    }
+    
+    if (getBooleanOption("generateReset")) {
+      addReset(lazyClass);
+    }
+    
+    StringBuilder bodyBuilder = new StringBuilder();
+    bodyBuilder
+      .append("    if (entity == null) {\n")
+      .append("      return null;\n")
+      .append("    }\n")
+      .append('\n')
+      .append("    ").append(lazyClass.getName()).append(" model = new ").append(lazyClass.getName()).append("(entity);\n");
+    
+    if (populateBase) {
+      bodyBuilder.append("    populateBase(entity, model);\n");
+    } else {
+      bodyBuilder.append(constructBasePopulation(packageName, baseProperties));
+    }
+    
+    bodyBuilder.append("    return model;");
+    
+    mapperClass.addMethod("public static", lazyClass.getName(), "toCompleteLazy", qualifiedName + " entity", bodyBuilder.toString());
+    
+    note("Writing class: " + lazyClass.getFullyQualifiedName());
+    queueClass(binaryName + lazyPostfix, lazyClass, entity);
+  }
+  
+  /**
+   * Overrides getter and setter of a property so that the property is populated from the entity on first 
+   * access unless the setter was called before.
+   * 
+   * @param lazyClass lazy model class
+   * @param propertyName name of the property
+   * @param type type of the property
+   * @param population code populating the property from the entity into super class
+   * @param bit index of the loaded bit of the property
+   */
+  private void addLazyAccessors(ModelClass lazyClass, String propertyName, String type, String population, int bit) {
+    String loaded = "loaded" + (bit >>> 5);
+    String mask = "0x" + Integer.toHexString(1 << (bit & 31));
+    String capitalized = StringUtils.capitalize(propertyName);
+    
+    StringBuilder getBuilder = new StringBuilder();
+    getBuilder
+      .append("    if ((").append(loaded).append(" & ").append(mask).append(") == 0 && entity != null) {\n");
+    
+    for (String line : trimBody(population).split("\n")) {
+      getBuilder.append("  ").append(line).append('\n');
+    }
+    
+    getBuilder
+      .append("      ").append(loaded).append(" |= ").append(mask).append(";\n")
+      .append("    }\n")
+      .append("    \n")
+      .append("    return super.get").append(capitalized).append("();");
+    
+    lazyClass.addMethod("public", type, "get" + capitalized, null, getBuilder.toString()).addAnnotation("@Override");
+    lazyClass.addMethod("public", "void", "set" + capitalized, type + " " + propertyName, 
+        "    " + loaded + " |= " + mask + ";\n    super.set" + capitalized + "(" + propertyName + ");").addAnnotation("@Override");
+  }
+  
+  private void addMapperMethods(ModelClass mapperClass, String qualifiedName, ModelClass modelClass, String type, CharSequence populateBody) {
+    StringBuilder bodyBuilder = new StringBuilder();
+    bodyBuilder
+      .append("    if (entity == null) {\n")
+      .append("      return null;\n")
+      .append("    }\n")
+      .append('\n')
+      .append("    ").append(modelClass.getName()).append(" model = new ").append(modelClass.getName()).append("();\n")
+      .append("    populate").append(type).append("(entity, model);\n")
+      .append("    return model;");
+    
+    mapperClass.addMethod("public static", modelClass.getName(), "to" + type, qualifiedName + " entity", bodyBuilder.toString());
+    mapperClass.addMethod("public static", "void", "populate" + type, qualifiedName + " entity, " + modelClass.getName() + " model", trimBody(populateBody));
+    
+    if (getBooleanOption("generateChunkedMappers")) {
+      addChunkedMapperMethod(mapperClass, qualifiedName, modelClass, type);
+    }
+    
+    if (getBooleanOption("generateParallelMappers")) {
+      addParallelMapperMethod(mapperClass, qualifiedName, modelClass, type);
+    }
+  }
+  
+  /**
+   * Adds mapper method that converts a list of loaded entities on a fork-join pool, preserving the order of the entities.
+   */
+  private void addParallelMapperMethod(ModelClass mapperClass, String qualifiedName, ModelClass modelClass, String type) {
+    String converterClass = getSupportClassName("ParallelConverter") + "<" + qualifiedName + ", " + modelClass.getName() + ">";
+    
+    StringBuilder bodyBuilder = new StringBuilder();
+    bodyBuilder
+      .append("    ").append(converterClass).append(" converter = new ").append(converterClass).append("() {\n")
+      .append("      @Override\n")
+      .append("      protected ").append(modelClass.getName()).append(" convert(").append(qualifiedName).append(" entity) {\n")
+      .append("        return to").append(type).append("(entity);\n")
+      .append("      }\n")
+      .append("    };\n")
+      .append("    \n")
+      .append("    return java.util.Arrays.asList(converter.convertAll(entities, new ").append(modelClass.getName()).append("[entities.size()], pool));");
+    
+    mapperClass.addMethod("public static", "java.util.List<" + modelClass.getName() + ">", "to" + type, 
+        "java.util.List<? extends " + qualifiedName + "> entities, java.util.concurrent.ForkJoinPool pool", bodyBuilder.toString());
+  }
+  
+  /**
+   * Adds mapper method that returns compact values from a cache keyed by entity id and version. Value is converted
+   * only when the cache has no value for the current version of the entity. Only the immutable compact values are 
+   * cached, because cached instances are shared between callers and complete models would go stale when nested 
+   * entities change. Entities without an accessible @Id and @Version property do not get a cache.
+   * 
+   * Version key covers only the state of the entity itself. Id lists of collection associations are cached with 
+   * the value, but the version of the entity does not change when the other side of an inverse (mappedBy) 
+   * association changes, so cached id lists of inverse associations may be stale until the entity is updated.
+   */
+  private void addCachedMapperMethod(ModelClass mapperClass, String packageName, String className, String qualifiedName, ModelClass compactClass, List<Element> baseProperties) {
+    Element idProperty = findAnnotatedProperty(baseProperties, Id.class);
+    Element versionProperty = findAnnotatedProperty(baseProperties, Version.class);
+    String valueName = getCompactValueName(className);
+    
+    if (idProperty == null || versionProperty == null || !isAccessible(idProperty, packageName) || !isAccessible(versionProperty, packageName)) {
+      note("No model cache for " + valueName + " because entity has no accessible @Id and @Version properties");
+      return;
+    }
+    
+    String cacheClass = getSupportClassName("ModelCache") + "<" + valueName + ">";
+    
+    mapperClass.addProperty("private final static", cacheClass, "COMPACT_VALUE_CACHE", 
+        "new " + cacheClass + "(\"" + compactClass.getPackageName() + "." + valueName + "\", " + getIntegerOption("modelCacheSize") + ")");
+    
+    StringBuilder bodyBuilder = new StringBuilder();
+    bodyBuilder
+      .append("    if (entity == null) {\n")
+      .append("      return null;\n")
+      .append("    }\n")
+      .append("    \n")
+      .append("    Object id = entity.").append(idProperty.getSimpleName()).append("();\n")
+      .append("    Object version = entity.").append(versionProperty.getSimpleName()).append("();\n")
+      .append("    if (id == null || version == null) {\n")
+      .append("      return ").append(valueName).append(".valueOf(toCompact(entity));\n")
+      .append("    }\n")
+      .append("    \n")
+      .append("    ").append(valueName).append(" value = COMPACT_VALUE_CACHE.get(id, version);\n")
+      .append("    if (value == null) {\n")
+      .append("      value = ").append(valueName).append(".valueOf(toCompact(entity));\n")
+      .append("      COMPACT_VALUE_CACHE.put(id, version, value);\n")
+      .append("    }\n")
+      .append("    \n")
+      .append("    return value;");
+    
+    mapperClass.addMethod("public static", valueName, "toCompactValueCached", qualifiedName + " entity", bodyBuilder.toString());
+    mapperClass.addMethod("public static", cacheClass, "getCompactValueCache", null, "    return COMPACT_VALUE_CACHE;");
+  }
+  
+  /**
+   * Returns property whose getter or field has given annotation
+   * 
+   * @param properties getters of the properties
+   * @param annotation annotation
+   * @return getter of the property or null when none of the properties has the annotation
+   */
+  private Element findAnnotatedProperty(List<Element> properties, Class<? extends Annotation> annotation) {
+    for (Element element : properties) {
+      if (element.getAnnotation(annotation) != null) {
+        return element;
+      }
+      
+      Element fieldElement = findField((TypeElement) element.getEnclosingElement(), getPropertyName(element));
+      if (fieldElement != null && fieldElement.getAnnotation(annotation) != null) {
+        return element;
+      }
+    }
+    
+    return null;
+  }
+  
+  /**
+   * Adds mapper method that converts entities of an iterator in chunks. Models are converted one chunk 
+   * at a time and a listener is notified after each chunk. Generated code targets Java 7, so there is no 
+   * java.util.stream.Stream overload; streams are converted through Stream.iterator().
+   */
+  private void addChunkedMapperMethod(ModelClass mapperClass, String qualifiedName, ModelClass modelClass, String type) {
+    String iteratorClass = getSupportClassName("ChunkedIterator") + "<" + qualifiedName + ", " + modelClass.getName() + ">";
+    
+    StringBuilder bodyBuilder = new StringBuilder();
+    bodyBuilder
+      .append("    return new ").append(iteratorClass).append("(entities, chunkSize, listener) {\n")
+      .append("      @Override\n")
+      .append("      protected ").append(modelClass.getName()).append(" convert(").append(qualifiedName).append(" entity) {\n")
+      .append("        return to").append(type).append("(entity);\n")
+      .append("      }\n")
+      .append("    };");
+    
+    mapperClass.addMethod("public static", "java.util.Iterator<" + modelClass.getName() + ">", "to" + type, 
+        "java.util.Iterator<? extends " + qualifiedName + "> entities, int chunkSize, " + getSupportClassName("ChunkListener") + " listener", bodyBuilder.toString());
+  }
+  
+  private String constructBasePopulation(String packageName, List<Element> baseProperties) {
+    StringBuilder bodyBuilder = new StringBuilder();
+    
+    for (Element element : baseProperties) {
+      if (isAccessible(element, packageName)) {
+        bodyBuilder
+          .append("    model.set").append(StringUtils.capitalize(getPropertyName(element)))
+          .append("(entity.").append(element.getSimpleName()).append("());\n");
+      }
+    }
+    
+    return bodyBuilder.toString();
+  }
+  
+  private String constructCompactComplexPopulation(String packageName, List<Element> complexProperties) {
+    StringBuilder bodyBuilder = new StringBuilder();
+    
+    for (Element element : complexProperties) {
+      Element propertyType = getPropertyType(element);
+      if (isAccessible(element, packageName) && getIdTypeName(propertyType) != null) {
+        String propertyName = getPropertyName(element);
+        String valueName = propertyName + "Value";
+        
+        bodyBuilder
+          .append("    ").append(getPropertyTypeName(element)).append(' ').append(valueName)
+          .append(" = entity.").append(element.getSimpleName()).append("();\n")
+          .append("    if (").append(valueName).append(" != null) {\n")
+          .append("      model.set").append(StringUtils.capitalize(propertyName)).append("_id(")
+          .append(valueName).append(".getId());\n")
+          .append("    }\n");
+      }
+    }
+    
+    return bodyBuilder.toString();
+  }
+  
+  private String constructCompactListPopulation(String packageName, List<Element> complexListProperties) {
+    StringBuilder bodyBuilder = new StringBuilder();
+    
+    for (Element element : complexListProperties) {
+      if (isAccessible(element, packageName)) {
+        String propertyName = getPropertyName(element);
+        String valueName = propertyName + "Value";
+        DeclaredType listGenericType = (DeclaredType) getListGenericType((DeclaredType) getMethodReturnType(element));
+        String idType = getIdTypeName(listGenericType.asElement());
+        
+        String idListClass = getPrimitiveIdListClass(idType);
+        
+        bodyBuilder
+          .append("    ").append(getPropertyTypeName(element)).append(' ').append(valueName)
+          .append(" = entity.").append(element.getSimpleName()).append("();\n")
+          .append("    if (").append(valueName).append(" != null) {\n");
+        
+        String listType = getIdListType(idType);
+        String newList = idListClass != null ? "new " + idListClass + "(" : "new java.util.ArrayList<" + idType + ">(";
+        String idsName = propertyName + "Ids";
+        
+        bodyBuilder.append(constructListCreation(listType, idsName, newList + valueName + ".size())", "model." + getListAllocatorName(propertyName + "_ids") + "(" + valueName + ".size())"));
+        
+        bodyBuilder.append("      for (").append(listGenericType).append(' ').append(propertyName).append("Item : ").append(valueName).append(") {\n");
+        
+        // Primitive id lists can not hold null ids, so ids are appended through the list class, which falls back to a boxed list
+        
+        if (idListClass != null) {
+          bodyBuilder.append("        ").append(idsName).append(" = ").append(idListClass).append(".append(").append(idsName).append(", ").append(propertyName).append("Item.getId());\n");
+        } else {
+          bodyBuilder.append("        ").append(idsName).append(".add(").append(propertyName).append("Item.getId());\n");
+        }
+        
+        bodyBuilder
+          .append("      }\n")
+          .append("      model.set").append(StringUtils.capitalize(propertyName)).append("_ids(").append(propertyName).append("Ids);\n")
+          .append(constructListClosing("model.set" + StringUtils.capitalize(propertyName) + "_ids"));
+      }
+    }
+    
+    return bodyBuilder.toString();
+  }
+  
+  private String constructCompleteComplexPopulation(String packageName, List<Element> complexProperties, String nestedMethod) {
+    return constructCompleteComplexPopulation(packageName, complexProperties, nestedMethod, "model");
+  }
+  
+  private String constructCompleteComplexPopulation(String packageName, List<Element> complexProperties, String nestedMethod, String target) {
+    StringBuilder bodyBuilder = new StringBuilder();
+    
+    for (Element element : complexProperties) {
+      if (isAccessible(element, packageName)) {
+        bodyBuilder
+          .append("    ").append(target).append(".set").append(StringUtils.capitalize(getPropertyName(element))).append('(')
+          .append(getMapperClassName(getPropertyType(element))).append('.').append(nestedMethod)
+          .append("(entity.").append(element.getSimpleName()).append("()));\n");
+      }
+    }
+    
+    return bodyBuilder.toString();
+  }
+  
+  private String constructCompleteListPopulation(String packageName, List<Element> complexListProperties, String nestedMethod) {
+    return constructCompleteListPopulation(packageName, complexListProperties, nestedMethod, "model");
+  }
+  
+  private String constructCompleteListPopulation(String packageName, List<Element> complexListProperties, String nestedMethod, String target) {
+    StringBuilder bodyBuilder = new StringBuilder();
+    
+    for (Element element : complexListProperties) {
+      if (isAccessible(element, packageName)) {
+        String propertyName = getPropertyName(element);
+        String valueName = propertyName + "Value";
+        DeclaredType listGenericType = (DeclaredType) getListGenericType((DeclaredType) getMethodReturnType(element));
+        
+        bodyBuilder
+          .append("    ").append(getPropertyTypeName(element)).append(' ').append(valueName)
+          .append(" = entity.").append(element.getSimpleName()).append("();\n")
+          .append("    if (").append(valueName).append(" != null) {\n")
+          .append(constructListCreation("java.util.List<TranquilModelEntity>", propertyName + "Models", 
+              "new java.util.ArrayList<TranquilModelEntity>(" + valueName + ".size())", target + "." + getListAllocatorName(propertyName) + "(" + valueName + ".size())"))
+          .append("      for (").append(listGenericType).append(' ').append(propertyName).append("Item : ").append(valueName).append(") {\n")
+          .append("        ").append(propertyName).append("Models.add(").append(getMapperClassName(listGenericType.asElement()))
+          .append('.').append(nestedMethod).append('(').append(propertyName).append("Item));\n")
+          .append("      }\n")
+          .append("      ").append(target).append(".set").append(StringUtils.capitalize(propertyName)).append('(').append(propertyName).append("Models);\n")
+          .append(constructListClosing(target + ".set" + StringUtils.capitalize(propertyName)));
+      }
+    }
+    
+    return bodyBuilder.toString();
+  }
+  
+  /**
+   * Returns code declaring a list populated by a mapper. When models are resettable, the list is allocated 
+   * by the model, which reuses the list it allocated before instead of creating a new one.
+   * 
+   * @param type type of the list
+   * @param name name of the variable
+   * @param creation expression creating a new list
+   * @param allocation expression allocating the list from the model
+   * @return code declaring the list
+   */
+  private String constructListCreation(String type, String name, String creation, String allocation) {
+    return "      " + type + ' ' + name + " = " + (getBooleanOption("generateReset") ? allocation : creation) + ";\n";
+  }
+  
+  /**
+   * Returns code closing the block populating a list. When models are resettable, list left from 
+   * the previous use of the model is removed when the entity has no list.
+   * 
+   * @param setter expression referring to the setter of the list
+   * @return code closing the block
+   */
+  private String constructListClosing(String setter) {
+    if (getBooleanOption("generateReset")) {
+      return "    } else {\n      " + setter + "(null);\n    }\n";
+    }
+    
+    return "    }\n";
+  }
+  
+  /**
+   * Returns name of the mapper method used for populating nested entities of complete models. 
+   * 
+   * @return name of the mapper method or null if nested entities can not be mapped 
+   */
+  private String getNestedMapperMethod() {
+    if (getBooleanOption("generateCompact")) {
+      return "toCompact";
+    }
+    
+    if (!getBooleanOption("flatModel")) {
+      return "toBase";
+    }
+    
+    return null;
+  }
+  
+  /**
+   * Returns fully qualified name of mapper class of an entity
+   * 
+   * @param entity entity class
+   * @return fully qualified name of mapper class
+   */
+  private String getMapperClassName(Element entity) {
+    return getPackage((TypeElement) entity) + '.' + entity.getSimpleName() + getOption("mapperPostfix");
+  }
+  
+  /**
+   * Returns whether getter can be called from generated classes in given package
+   * 
+   * @param element getter method
+   * @param packageName package of generated class
+   * @return whether getter can be called
+   */
+  private boolean isAccessible(Element element, String packageName) {
+    Set<Modifier> modifiers = element.getModifiers();
+    if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.STATIC)) {
+      return false;
+    }
+    
+    if (modifiers.contains(Modifier.PUBLIC)) {
+      return true;
+    }
+    
+    return packageName.equals(getPackage((TypeElement) element.getEnclosingElement()));
+  }
+  
+  private String trimBody(CharSequence body) {
+    int length = body.length();
+    if (length > 0 && body.charAt(length - 1) == '\n') {
+      return body.subSequence(0, length - 1).toString();
+    }
+    
+    return body.toString();
+  }
+
+  /**
+   * Adds ordinal based property accessor into model class. Ordinals continue from the ordinals of the parent class.
+   * 
+   * @param modelClass model class
+   */
+  private void addPropertyAccessor(ModelClass modelClass) {
+    List<ModelProperty> properties = modelClass.getAllAccessorProperties();
+    List<String> propertyNames = new ArrayList<String>();
+    for (ModelProperty property : properties) {
+      propertyNames.add(property.getName());
+    }
+    
+    boolean inherited = modelClass.getParentClass() != null;
+    if (!inherited) {
+      modelClass.addInterface(getSupportClassName("ModelAccessor"));
+    }
+    
+    StringBuilder getBuilder = new StringBuilder();
+    StringBuilder setBuilder = new StringBuilder();
+    boolean unchecked = false;
+    
+    getBuilder.append("    switch (ordinal) {\n");
+    setBuilder.append("    switch (ordinal) {\n");
+
+    List<String> constantNames = getOrdinalConstantNames(modelClass);
+    for (int ordinal = properties.size() - modelClass.getAccessorProperties().size(), l = properties.size(); ordinal < l; ordinal++) {
+      ModelProperty property = properties.get(ordinal);
+      String constantName = constantNames.get(ordinal);
+      modelClass.addProperty("public final static", "int", constantName, String.valueOf(ordinal));
+      
+      getBuilder
+        .append("      case ").append(constantName).append(":\n")
+        .append("        return ").append(modelClass.getGetterName(property)).append("();\n");
+      
+      setBuilder
+        .append("      case ").append(constantName).append(":\n")
+        .append("        ").append(modelClass.getSetterName(property)).append('(').append(castValue(property.getType(), "value")).append(");\n")
+        .append("      break;\n");
+      
+      unchecked = unchecked || property.getType().indexOf('<') != -1;
+    }
+    
+    getBuilder.append("      default:\n");
+    setBuilder.append("      default:\n");
+
+    if (inherited) {
+      getBuilder.append("        return super.get(ordinal);\n");
+      setBuilder.append("        super.set(ordinal, value);\n");
+    } else {
+      getBuilder.append("        throw new IndexOutOfBoundsException(\"Invalid property ordinal \" + ordinal);\n");
+      setBuilder.append("        throw new IndexOutOfBoundsException(\"Invalid property ordinal \" + ordinal);\n");
+    }
+    
+    getBuilder.append("    }");
+    setBuilder.append("    }");
+    
+    modelClass.addProperty("private final static", "String[]", "PROPERTY_NAMES", "{" + joinProperties(propertyNames) + "}");
+    modelClass.addMethod("public", "int", "getPropertyCount", null, "    return PROPERTY_NAMES.length;").addAnnotation("@Override");
+    modelClass.addMethod("public", "String", "getPropertyName", "int ordinal", "    return PROPERTY_NAMES[ordinal];").addAnnotation("@Override");
+    modelClass.addMethod("public", "Object", "get", "int ordinal", getBuilder.toString()).addAnnotation("@Override");
+    
+    ModelMethod setMethod = modelClass.addMethod("public", "void", "set", "int ordinal, Object value", setBuilder.toString());
+    setMethod.addAnnotation("@Override");
+    if (unchecked) {
+      setMethod.addAnnotation("@SuppressWarnings(\"unchecked\")");
+    }
+    
+    if (getBooleanOption("generateFieldMasks")) {
+      addPropertyIndex(modelClass, propertyNames);
+    }
+  }
+  
+  /**
+   * Adds name to ordinal lookup and field mask factory into model class. Lookup uses a 
+   * perfect hash table resolved at compile time and falls back to string switch when 
+   * property names can not be separated by their hash codes.
+   * 
+   * @param modelClass model class
+   * @param propertyNames names of all accessor properties of the class in ordinal order
+   */
+  private void addPropertyIndex(ModelClass modelClass, List<String> propertyNames) {
+    StringBuilder bodyBuilder = new StringBuilder();
+    bodyBuilder
+      .append("    if (name == null) {\n")
+      .append("      return -1;\n")
+      .append("    }\n")
+      .append('\n');
+    
+    int[] perfectHash = findPerfectHash(propertyNames);
+    if (perfectHash != null) {
+      int seed = perfectHash[0];
+      int bits = perfectHash[1];
+      String[] slotNames = new String[1 << bits];
+      String[] slotOrdinals = new String[1 << bits];
+      Arrays.fill(slotNames, "null");
+      Arrays.fill(slotOrdinals, "-1");
+      
+      for (int ordinal = 0, l = propertyNames.size(); ordinal < l; ordinal++) {
+        String propertyName = propertyNames.get(ordinal);
+        int slot = (propertyName.hashCode() * seed) >>> (32 - bits);
+        slotNames[slot] = '"' + propertyName + '"';
+        slotOrdinals[slot] = String.valueOf(ordinal);
+      }
+      
+      modelClass.addProperty("private final static", "String[]", "PROPERTY_INDEX_NAMES", "{" + StringUtils.join(slotNames, ",") + "}");
+      modelClass.addProperty("private final static", "int[]", "PROPERTY_INDEX_ORDINALS", "{" + StringUtils.join(slotOrdinals, ",") + "}");
+      
+      bodyBuilder
+        .append("    int slot = (name.hashCode() * ").append(seed).append(") >>> ").append(32 - bits).append(";\n")
+        .append("    if (name.equals(PROPERTY_INDEX_NAMES[slot])) {\n")
+        .append("      return PROPERTY_INDEX_ORDINALS[slot];\n")
+        .append("    }\n")
+        .append('\n')
+        .append("    return -1;");
+    } else {
+      bodyBuilder.append("    switch (name) {\n");
+      for (int ordinal = 0, l = propertyNames.size(); ordinal < l; ordinal++) {
+        bodyBuilder
+          .append("      case \"").append(propertyNames.get(ordinal)).append("\":\n")
+          .append("        return ").append(ordinal).append(";\n");
+      }
+      
+      bodyBuilder
+        .append("      default:\n")
+        .append("        return -1;\n")
+        .append("    }");
+    }
+    
+    modelClass.addMethod("public static", "int", "ordinalOf", "String name", bodyBuilder.toString());
+    
+    String fieldMaskClass = getSupportClassName("FieldMask");
+    
+    StringBuilder maskBuilder = new StringBuilder();
+    maskBuilder
+      .append("    ").append(fieldMaskClass).append(" fieldMask = new ").append(fieldMaskClass).append("(PROPERTY_NAMES.length);\n")
+      .append("    int start = 0;\n")
+      .append("    while (start < fields.length()) {\n")
+      .append("      int end = fields.indexOf(',', start);\n")
+      .append("      if (end == -1) {\n")
+      .append("        end = fields.length();\n")
+      .append("      }\n")
+      .append('\n')
+      .append("      fieldMask.add(ordinalOf(fields.substring(start, end).trim()));\n")
+      .append("      start = end + 1;\n")
+      .append("    }\n")
+      .append('\n')
+      .append("    return fieldMask;");
+    
+    modelClass.addMethod("public static", fieldMaskClass, "createFieldMask", "String fields", maskBuilder.toString());
+  }
+  
+  /**
+   * Searches multiplier and table size for a collision free hash table of the names. Slot of 
+   * a name is (name.hashCode() * multiplier) >>> (32 - bits). 
+   * 
+   * @param names names
+   * @return array containing multiplier and bit count of the table size or null if such a table could not be found
+   */
+  private int[] findPerfectHash(List<String> names) {
+    int minBits = 1;
+    while ((1 << minBits) < names.size()) {
+      minBits++;
+    }
+    
+    for (int bits = minBits; bits <= minBits + 2; bits++) {
+      boolean[] used = new boolean[1 << bits];
+      
+      for (int attempt = 0; attempt < PERFECT_HASH_ATTEMPTS; attempt++) {
+        int seed = 0x9E3779B9 * (2 * attempt + 1);
+        boolean collision = false;
+        Arrays.fill(used, false);
+        
+        for (String name : names) {
+          int slot = (name.hashCode() * seed) >>> (32 - bits);
+          if (used[slot]) {
+            collision = true;
+            break;
+          }
+          
+          used[slot] = true;
+        }
+        
+        if (!collision) {
+          return new int[] { seed, bits };
+        }
+      }
+    }
+    
+    return null;
+  }
+  
+  /**
+   * Adds streaming JSON writer into a model class. Property names are encoded into byte arrays once per class 
+   * and values are written through typed JsonOutput methods, so writing does not use reflection. Root classes 
+   * implement JsonWritable and subclasses append their own properties after the properties of the parent.
+   * 
+   * @param modelClass model class
+   */
+  private void addJsonWriter(ModelClass modelClass) {
+    String jsonOutputClass = getSupportClassName("JsonOutput");
+    boolean inherited = modelClass.getParentClass() != null;
+    
+    StringBuilder bodyBuilder = new StringBuilder();
+    if (inherited) {
+      bodyBuilder.append("    super.writeJsonProperties(out);\n");
+    }
+    
+    List<String> constantNames = getOrdinalConstantNames(modelClass);
+    int ordinal = constantNames.size() - modelClass.getAccessorProperties().size();
+    for (ModelProperty property : modelClass.getAccessorProperties()) {
+      String nameConstant = "JSON_NAME_" + constantNames.get(ordinal++).substring("PROPERTY_".length());
+      modelClass.addProperty("private final static", "byte[]", nameConstant, jsonOutputClass + ".encodeName(\"" + property.getName() + "\")");
+      
+      bodyBuilder
+        .append("    out.writeName(").append(nameConstant).append(");\n")
+        .append("    out.writeValue(").append(modelClass.getGetterName(property)).append("());\n");
+    }
+    
+    if (!inherited) {
+      modelClass.addInterface(getSupportClassName("JsonWritable"));
+      
+      ModelMethod writeMethod = modelClass.addMethod("public", "void", "writeJson", jsonOutputClass + " out", 
+          "    out.beginObject();\n    writeJsonProperties(out);\n    out.endObject();");
+      writeMethod.addAnnotation("@Override");
+      writeMethod.addException("java.io.IOException");
+    }
+    
+    ModelMethod propertiesMethod = modelClass.addMethod("protected", "void", "writeJsonProperties", jsonOutputClass + " out", trimBody(bodyBuilder));
+    propertiesMethod.addException("java.io.IOException");
+  }
+  
+  /**
+   * Adds binary codec into a leaf model class. Codec writes all properties of the class, including inherited ones,
+   * in declaration order after a schema fingerprint and a bitmap of non-null properties. Codec is not generated
+   * when a property has a type the codec does not support. Nested models of Complete classes are reported as 
+   * a note, other unsupported types as a warning.
+   * 
+   * @param modelClass model class
+   */
+  private void addBinaryCodec(ModelClass modelClass) {
+    String codecClass = getSupportClassName("BinaryCodec");
+    List<ModelProperty> properties = modelClass.getAllAccessorProperties();
+    List<BinaryKind> kinds = new ArrayList<BinaryKind>(properties.size());
+    
+    for (ModelProperty property : properties) {
+      BinaryKind kind = getBinaryKind(getBinaryType(property));
+      if (kind == null) {
+        if (property.getType().indexOf("TranquilModelEntity") == -1) {
+          processingEnv.getMessager().printMessage(Kind.WARNING, "Binary codec is not generated for " + modelClass.getFullyQualifiedName() + 
+              " because property " + property.getName() + " has unsupported type " + property.getType());
+        } else {
+          processingEnv.getMessager().printMessage(Kind.NOTE, "Binary codec is not generated for " + modelClass.getFullyQualifiedName() + 
+              " because property " + property.getName() + " contains nested models");
+        }
+        
+        return;
+      }
+      
+      kinds.add(kind);
+    }
+    
+    StringBuilder schemaBuilder = new StringBuilder(modelClass.getName());
+    StringBuilder valuesBuilder = new StringBuilder();
+    StringBuilder sizeBuilder = new StringBuilder();
+    StringBuilder writeBuilder = new StringBuilder();
+    StringBuilder readBuilder = new StringBuilder();
+    List<String> nullBits = new ArrayList<String>();
+    int fixedSize = 8;
+    
+    readBuilder.append("    ").append(codecClass).append(".checkSchema(buffer, BINARY_SCHEMA, \"").append(modelClass.getName()).append("\");\n");
+    
+    for (int i = 0, l = properties.size(); i < l; i++) {
+      ModelProperty property = properties.get(i);
+      BinaryKind kind = kinds.get(i);
+      String value = property.getName() + "Value";
+      boolean nullable = !PRIMITIVE_WRAPPERS.containsKey(property.getType());
+      
+      schemaBuilder.append(';').append(property.getName()).append(':').append(property.getType());
+      valuesBuilder.append("    ").append(property.getType()).append(' ').append(value).append(" = ").append(modelClass.getGetterName(property)).append("();\n");
+      
+      String size = kind.getSize(codecClass, value);
+      String write = "    " + kind.getWrite(codecClass, value) + "\n";
+      String read = kind.getRead(codecClass, getBinaryType(property));
+      
+      if (nullable) {
+        int bit = nullBits.size();
+        nullBits.add(value);
+        
+        sizeBuilder.append("    if (").append(value).append(" != null) {\n      size += ").append(size).append(";\n    }\n");
+        writeBuilder.append("    if (").append(value).append(" != null) {\n  ").append(write).append("    }\n");
+        read = "(nulls" + (bit >>> 3) + " & 0x" + Integer.toHexString(1 << (bit & 7)) + ") != 0 ? " + read + " : null";
+      } else if (size.matches("[0-9]+")) {
+        fixedSize += Integer.parseInt(size);
+        writeBuilder.append(write);
+      } else {
+        sizeBuilder.append("    size += ").append(size).append(";\n");
+        writeBuilder.append(write);
+      }
+      
+      readBuilder.append("    ").append(modelClass.getSetterName(property)).append('(').append(read).append(");\n");
+    }
+    
+    // Null bitmap is written after the schema and read before the properties
+    
+    StringBuilder bitmapWriteBuilder = new StringBuilder();
+    StringBuilder bitmapReadBuilder = new StringBuilder();
+    int bitmapBytes = (nullBits.size() + 7) >>> 3;
+    for (int i = 0; i < bitmapBytes; i++) {
+      bitmapWriteBuilder.append("    buffer.put((byte) (");
+      for (int bit = i << 3, l = Math.min(nullBits.size(), (i + 1) << 3); bit < l; bit++) {
+        if (bit > i << 3) {
+          bitmapWriteBuilder.append(" | ");
+        }
+        
+        bitmapWriteBuilder.append('(').append(nullBits.get(bit)).append(" != null ? 0x").append(Integer.toHexString(1 << (bit & 7))).append(" : 0)");
+      }
+      bitmapWriteBuilder.append("));\n");
+      bitmapReadBuilder.append("    int nulls").append(i).append(" = buffer.get();\n");
+    }
+    
+    fixedSize += bitmapBytes;
+    
+    modelClass.addProperty("public final static", "long", "BINARY_SCHEMA", "0x" + Long.toHexString(fingerprint(schemaBuilder)) + "l");
+    
+    modelClass.addMethod("public", "int", "getBinarySize", null, 
+        valuesBuilder + "    int size = " + fixedSize + ";\n" + sizeBuilder + "    return size;");
+    modelClass.addMethod("public", "void", "writeBinary", "java.nio.ByteBuffer buffer", 
+        valuesBuilder + "    buffer.putLong(BINARY_SCHEMA);\n" + bitmapWriteBuilder + trimBody(writeBuilder));
+    
+    readBuilder.insert(readBuilder.indexOf("\n") + 1, bitmapReadBuilder);
+    modelClass.addMethod("public", "void", "readBinary", "java.nio.ByteBuffer buffer", trimBody(readBuilder));
+    
+    modelClass.addMethod("public static", modelClass.getName(), "fromBinary", "java.nio.ByteBuffer buffer", 
+        "    " + modelClass.getName() + " model = new " + modelClass.getName() + "();\n    model.readBinary(buffer);\n    return model;");
+  }
+  
+  /**
+   * Returns type by which binary codecs encode a property. Properties implemented by primitive id lists 
+   * are encoded by their implementation type, so that decoded ids are stored unboxed as well.
+   * 
+   * @param property property
+   * @return type of the property for binary codecs
+   */
+  private String getBinaryType(ModelProperty property) {
+    return property.getImplementationType() != null ? property.getImplementationType() : property.getType();
+  }
+  
+  /**
+   * Returns how values of a property type are encoded by binary codecs
+   * 
+   * @param type property type
+   * @return binary kind or null if type is not supported
+   */
+  private BinaryKind getBinaryKind(String type) {
+    String typeName = type.replace("java.lang.", "");
+    BinaryKind result = BINARY_KINDS.get(typeName);
+    if (result != null) {
+      return result;
+    }
+    
+    if (type.equals(getSupportClassName("LongIdList"))) {
+      return BinaryKind.LONG_ID_LIST;
+    } else if (type.equals(getSupportClassName("IntIdList"))) {
+      return BinaryKind.INTEGER_ID_LIST;
+    }
+    
+    int genericStart = typeName.indexOf('<');
+    if (genericStart != -1 && typeName.endsWith(">")) {
+      String collectionType = typeName.substring(0, genericStart);
+      String elementType = typeName.substring(genericStart + 1, typeName.length() - 1);
+      boolean set = "java.util.Set".equals(collectionType);
+      
+      if (set || "java.util.List".equals(collectionType) || "java.util.Collection".equals(collectionType)) {
+        if ("Long".equals(elementType)) {
+          return set ? BinaryKind.LONG_SET : BinaryKind.LONG_LIST;
+        } else if ("Integer".equals(elementType)) {
+          return set ? BinaryKind.INTEGER_SET : BinaryKind.INTEGER_LIST;
+        } else if ("String".equals(elementType)) {
+          return set ? BinaryKind.STRING_SET : BinaryKind.STRING_LIST;
+        }
+      }
+      
+      return null;
+    }
+    
+    TypeElement typeElement = processingEnv.getElementUtils().getTypeElement(type);
+    if (typeElement != null && typeElement.getKind() == ElementKind.ENUM) {
+      return BinaryKind.ENUM;
+    }
+    
+    return null;
+  }
+  
+  /**
+   * Returns 64-bit FNV-1a hash of a schema description
+   * 
+   * @param schema schema description
+   * @return hash
+   */
+  private long fingerprint(CharSequence schema) {
+    long hash = 0xcbf29ce484222325l;
+    for (int i = 0, l = schema.length(); i < l; i++) {
+      hash ^= schema.charAt(i);
+      hash *= 0x100000001b3l;
+    }
+    
+    return hash;
+  }
+  
+  /**
+   * Returns names of the ordinal constants of all accessor properties of a class, including inherited ones, in 
+   * ordinal order. Properties that map to the same name (e.g. ownerId and owner_id) or to a name reserved by the 
+   * accessor are disambiguated with a numeric suffix. Names of the parent properties never depend on the 
+   * properties of the subclass, so subclasses see the same names as their parents.
+   * 
+   * @param modelClass model class
+   * @return names of the ordinal constants
+   */
+  private List<String> getOrdinalConstantNames(ModelClass modelClass) {
+    Set<String> usedNames = new HashSet<String>(Arrays.asList("PROPERTY_NAMES", "PROPERTY_INDEX_NAMES", "PROPERTY_INDEX_ORDINALS"));
+    List<String> result = new ArrayList<String>();
+    
+    for (ModelProperty property : modelClass.getAllAccessorProperties()) {
+      String constantName = getOrdinalConstantName(property);
+      if (!usedNames.add(constantName)) {
+        int suffix = 2;
+        while (!usedNames.add(constantName + '_' + suffix)) {
+          suffix++;
+        }
+        
+        constantName = constantName + '_' + suffix;
+      }
+      
+      result.add(constantName);
+    }
     
-    // Write classes
+    return result;
+  }
+  
+  /**
+   * Returns name of the ordinal constant of a property, e.g. PROPERTY_OWNER_ID for owner_id
+   * 
+   * @param property property
+   * @return name of the ordinal constant
+   */
+  private String getOrdinalConstantName(ModelProperty property) {
+    String propertyName = property.getName();
+    StringBuilder resultBuilder = new StringBuilder("PROPERTY_");
     
-    note("Writing class: " + baseClass.getFullyQualifiedName());
-    classWriter.writeClass(processingEnv.getFiler().createSourceFile(binaryName + getOption("basePostfix")), baseClass);
-   
-    if (getBooleanOption("generateCompact")) {
-      note("Writing class: " + compactClass.getFullyQualifiedName());
-      classWriter.writeClass(processingEnv.getFiler().createSourceFile(binaryName + getOption("compactPostfix")), compactClass);
+    for (int i = 0, l = propertyName.length(); i < l; i++) {
+      char c = propertyName.charAt(i);
+      if (i > 0 && Character.isUpperCase(c) && Character.isLowerCase(propertyName.charAt(i - 1))) {
+        resultBuilder.append('_');
+      }
+      
+      resultBuilder.append(Character.toUpperCase(c));
     }
-
-    if (getBooleanOption("generateComplete")) {
-      note("Writing class: " + completeClass.getFullyQualifiedName());
-      classWriter.writeClass(processingEnv.getFiler().createSourceFile(binaryName + getOption("completePostfix")), completeClass);
+    
+    return resultBuilder.toString();
+  }
+  
+  /**
+   * Returns expression that casts an Object typed variable into given type. Primitive types 
+   * are cast via their wrapper types and nulls are converted into default values.
+   * 
+   * @param type target type
+   * @param variable name of the variable
+   * @return cast expression
+   */
+  private String castValue(String type, String variable) {
+    String wrapperType = PRIMITIVE_WRAPPERS.get(type);
+    if (wrapperType != null) {
+      return variable + " != null ? (" + wrapperType + ") " + variable + " : " + PRIMITIVE_DEFAULTS.get(type);
     }
+    
+    return "(" + type + ") " + variable;
   }
 
   private void addBaseProperties(ModelClass baseClass, List<Element> baseProperties) {
+    boolean primitiveFields = getBooleanOption("primitiveFields");
+    int presenceBits = 0;
+    
   	for (Element element : baseProperties) {
       String propertyName =  getPropertyName(element);
-      ModelProperty property = baseClass.addProperty(getPropertyTypeName(element), propertyName);
-      baseClass.addGetter(property);
-      baseClass.addSetter(property);
+      String propertyType = getPropertyTypeName(element);
+      ModelProperty property = baseClass.addProperty(propertyType, propertyName);
+      String primitiveType = primitiveFields ? PRIMITIVE_TYPES.get(propertyType) : null;
+      
+      if (primitiveType != null) {
+        addPrimitiveAccessors(baseClass, property, primitiveType, presenceBits++);
+      } else {
+        baseClass.addGetter(property);
+        baseClass.addSetter(property);
+      }
+    }
+    
+    for (int i = 0, l = (presenceBits + 31) >>> 5; i < l; i++) {
+      baseClass.addProperty("int", "presence" + i);
     }
 	}
+  
+  /**
+   * Stores a wrapper typed property in a primitive field. Getter and setter keep the wrapper type and 
+   * whether the property is null is tracked by a bit in the presence fields of the class.
+   * 
+   * @param modelClass model class
+   * @param property property
+   * @param primitiveType primitive type of the field
+   * @param bit index of the presence bit
+   */
+  private void addPrimitiveAccessors(ModelClass modelClass, ModelProperty property, String primitiveType, int bit) {
+    String name = property.getName();
+    String presence = "presence" + (bit >>> 5);
+    String mask = "0x" + Integer.toHexString(1 << (bit & 31));
+    
+    property.setFieldType(primitiveType);
+    
+    modelClass.addGetter(property, "    return (" + presence + " & " + mask + ") != 0 ? " + property.getType() + ".valueOf(" + name + ") : null;");
+    
+    StringBuilder bodyBuilder = new StringBuilder();
+    bodyBuilder
+      .append("    if (").append(name).append(" != null) {\n")
+      .append("      this.").append(name).append(" = ").append(name).append(";\n")
+      .append("      ").append(presence).append(" |= ").append(mask).append(";\n")
+      .append("    } else {\n")
+      .append("      this.").append(name).append(" = ").append(PRIMITIVE_DEFAULTS.get(primitiveType)).append(";\n")
+      .append("      ").append(presence).append(" &= ~").append(mask).append(";\n")
+      .append("    }");
+    
+    modelClass.addSetter(property, bodyBuilder.toString());
+  }
 
 	private void addCompactComplexProperties(ModelClass compactClass, List<Element> complexProperties) {
   	for (Element element : complexProperties) {
@@ -363,22 +2039,7 @@ public class TranquilModelAnnotationProcessor extends AbstractProcessor {
   	
   private void addCompleteExpandedProperties(ModelClass completeClass, List<Element> expandedProperties) {
   	for (Element element : expandedProperties) {
-      String propertyName = getPropertyName(element) + "_tq";
-      
-      TranquilityEntityField annotation = element.getAnnotation(TranquilityEntityField.class);
-      if (!StringUtils.isEmpty(annotation.fieldName()))
-        propertyName = annotation.fieldName();
-      
-      TypeMirror mirror = null;
-      
-      try { 
-        annotation.value();
-      } catch (MirroredTypeException mte) {
-        mirror = mte.getTypeMirror();
-      }
-      
-      Types TypeUtils = this.processingEnv.getTypeUtils();
-      TypeElement e = (TypeElement) TypeUtils.asElement(mirror);
+      String propertyName = getExpandedPropertyName(element);
 
       completeClass.addImport(TranquilModelEntity.class.getCanonicalName());
       completeClass.addImport(TranquilityExpandedField.class.getCanonicalName());
@@ -389,28 +2050,444 @@ public class TranquilModelAnnotationProcessor extends AbstractProcessor {
       else
         property = completeClass.addProperty("TranquilModelEntity", propertyName);
       
-      property.addAnnotation("@TranquilityExpandedField(entityResolverClass = " + e.getQualifiedName() + ".class, idProperty = \"" + getPropertyName(element) + "\")");
+      property.addAnnotation("@TranquilityExpandedField(entityResolverClass = " + getEntityResolverClass(element) + ".class, idProperty = \"" + getPropertyName(element) + "\")");
       completeClass.addGetter(property);
       completeClass.addSetter(property);
     }
   }
   
+  private String getExpandedPropertyName(Element element) {
+    TranquilityEntityField annotation = element.getAnnotation(TranquilityEntityField.class);
+    if (!StringUtils.isEmpty(annotation.fieldName()))
+      return annotation.fieldName();
+    
+    return getPropertyName(element) + "_tq";
+  }
+  
+  private String getEntityResolverClass(Element element) {
+    TranquilityEntityField annotation = element.getAnnotation(TranquilityEntityField.class);
+    TypeMirror mirror = null;
+    
+    try { 
+      annotation.value();
+    } catch (MirroredTypeException mte) {
+      mirror = mte.getTypeMirror();
+    }
+    
+    Types TypeUtils = this.processingEnv.getTypeUtils();
+    TypeElement e = (TypeElement) TypeUtils.asElement(mirror);
+    
+    return e.getQualifiedName().toString();
+  }
+  
+  /**
+   * Writes immutable value variant of compact class. Value has the properties of the compact class in final 
+   * fields, field-wise equals, hash code computed when the value is created and a weak interner. Collections, 
+   * maps, dates and arrays are copied, other mutable property types are stored as they are. Values are created 
+   * with a builder class, because a constructor taking every property would break when properties are reordered 
+   * and could exceed the limit of 255 parameter slots of the JVM.
+   * 
+   * @param entity entity
+   * @param binaryName binary name of the entity
+   * @param compactClass compact class
+   */
+  private void writeCompactValue(TypeElement entity, String binaryName, ModelClass compactClass) {
+    String valueName = getCompactValueName(entity.getSimpleName().toString());
+    ModelClass valueClass = new ModelClass(compactClass.getPackageName(), valueName);
+    valueClass.setModifiers("public final");
+    
+    String internerClass = getSupportClassName("ModelInterner") + "<" + valueName + ">";
+    
+    ModelClass builderClass = new ModelClass(compactClass.getPackageName(), valueName + "Builder");
+    builderClass.setModifiers("public final");
+    String builderName = builderClass.getName();
+    
+    StringBuilder valueOfBuilder = new StringBuilder("    return new " + builderName + "()");
+    StringBuilder constructorBuilder = new StringBuilder();
+    StringBuilder hashCodeBuilder = new StringBuilder("    int result = 1;\n");
+    StringBuilder equalsBuilder = new StringBuilder();
+    List<ModelProperty> valueProperties = new ArrayList<ModelProperty>();
+    
+    for (ModelProperty compactProperty : compactClass.getAllAccessorProperties()) {
+      String name = compactProperty.getName();
+      String type = compactProperty.getType();
+      
+      ModelProperty property = valueClass.addProperty("private final", type, name);
+      valueProperties.add(property);
+      
+      ModelProperty builderProperty = builderClass.addProperty("", type, name);
+      builderClass.addMethod("public", builderName, builderClass.getSetterName(builderProperty), type + " " + name, 
+          "    this." + name + " = " + name + ";\n    return this;");
+      
+      valueOfBuilder.append("\n      .").append(builderClass.getSetterName(builderProperty)).append("(model.").append(compactClass.getGetterName(compactProperty)).append("())");
+      constructorBuilder.append("    this.").append(name).append(" = ").append(copyValue(type, "builder." + name)).append(";\n");
+      hashCodeBuilder.append("    result = 31 * result + ").append(hashValue(type, "this." + name)).append(";\n");
+      equalsBuilder.append(equalsBuilder.length() == 0 ? "    return " : " && \n        ").append(equalValues(type, "this." + name, "other." + name));
+    }
+    
+    constructorBuilder.append("    this.cachedHashCode = computeHashCode();");
+    equalsBuilder.append(equalsBuilder.length() == 0 ? "    return true;" : ";");
+    hashCodeBuilder.append("    return result;");
+    
+    valueOfBuilder.append("\n      .build();");
+    
+    valueClass.addConstructor("", constructorBuilder.toString(), builderName + " builder");
+    builderClass.addMethod("public", valueName, "build", null, "    return new " + valueName + "(this);");
+    
+    valueClass.addMethod("public static", builderName, "builder", null, "    return new " + builderName + "();");
+    valueClass.addMethod("public static", valueName, "valueOf", compactClass.getName() + " model", 
+        "    if (model == null) {\n" + 
+        "      return null;\n" + 
+        "    }\n" + 
+        "    \n" + 
+        valueOfBuilder);
+    
+    for (ModelProperty property : valueProperties) {
+      String type = property.getType();
+      if (type.equals("java.util.Date") || type.endsWith("[]")) {
+        valueClass.addGetter(property, "    return " + copyValue(type, property.getName()) + ";");
+      } else {
+        valueClass.addGetter(property);
+      }
+    }
+    
+    valueClass.addMethod("public", valueName, "intern", null, "    return INTERNER.intern(this);");
+    valueClass.addMethod("public", "int", "hashCode", null, "    return cachedHashCode;").addAnnotation("@Override");
+    valueClass.addMethod("public", "boolean", "equals", "Object obj", 
+        "    if (this == obj) {\n" + 
+        "      return true;\n" + 
+        "    }\n" + 
+        "    \n" + 
+        "    if (!(obj instanceof " + valueName + ")) {\n" + 
+        "      return false;\n" + 
+        "    }\n" + 
+        "    \n" + 
+        "    " + valueName + " other = (" + valueName + ") obj;\n" + 
+        "    if (this.cachedHashCode != other.cachedHashCode) {\n" + 
+        "      return false;\n" + 
+        "    }\n" + 
+        "    \n" + 
+        equalsBuilder).addAnnotation("@Override");
+    valueClass.addMethod("private", "int", "computeHashCode", null, hashCodeBuilder.toString());
+    
+    valueClass.addProperty("private final", "int", "cachedHashCode");
+    valueClass.addProperty("private final static", internerClass, "INTERNER", "new " + internerClass + "()");
+    
+    note("Writing class: " + valueClass.getFullyQualifiedName());
+    queueClass(getCompactValueName(binaryName), valueClass, entity);
+    
+    note("Writing class: " + builderClass.getFullyQualifiedName());
+    queueClass(getCompactValueName(binaryName) + "Builder", builderClass, entity);
+  }
+  
+  private String getCompactValueName(String className) {
+    return className + getOption("compactPostfix") + "Value";
+  }
+  
+  /**
+   * Returns expression that copies a value of given type into an unmodifiable value
+   * 
+   * @param type type of the value
+   * @param variable name of the variable
+   * @return copy expression
+   */
+  private String copyValue(String type, String variable) {
+    String copy = null;
+    
+    if (type.endsWith("[]")) {
+      copy = variable + ".clone()";
+    } else if (type.equals("java.util.Date")) {
+      copy = "new java.util.Date(" + variable + ".getTime())";
+    } else if (type.startsWith("java.util.List<")) {
+      copy = "java.util.Collections.unmodifiableList(new java.util.ArrayList" + type.substring(type.indexOf('<')) + "(" + variable + "))";
+    } else if (type.startsWith("java.util.Collection<")) {
+      copy = "java.util.Collections.unmodifiableCollection(new java.util.ArrayList" + type.substring(type.indexOf('<')) + "(" + variable + "))";
+    } else if (type.startsWith("java.util.Set<")) {
+      copy = "java.util.Collections.unmodifiableSet(new java.util.LinkedHashSet" + type.substring(type.indexOf('<')) + "(" + variable + "))";
+    } else if (type.startsWith("java.util.Map<")) {
+      copy = "java.util.Collections.unmodifiableMap(new java.util.LinkedHashMap" + type.substring(type.indexOf('<')) + "(" + variable + "))";
+    }
+    
+    if (copy == null) {
+      return variable;
+    }
+    
+    return variable + " != null ? " + copy + " : null";
+  }
+  
+  private String hashValue(String type, String variable) {
+    if (type.endsWith("[]")) {
+      return "java.util.Arrays.hashCode(" + variable + ")";
+    }
+    
+    switch (type) {
+      case "boolean":
+        return "(" + variable + " ? 1231 : 1237)";
+      case "byte":
+      case "short":
+      case "char":
+      case "int":
+        return variable;
+      case "long":
+        return "(int) (" + variable + " ^ (" + variable + " >>> 32))";
+      case "float":
+        return "Float.floatToIntBits(" + variable + ")";
+      case "double":
+        return "(int) (Double.doubleToLongBits(" + variable + ") ^ (Double.doubleToLongBits(" + variable + ") >>> 32))";
+      default:
+        return "(" + variable + " != null ? " + variable + ".hashCode() : 0)";
+    }
+  }
+  
+  private String equalValues(String type, String variable, String otherVariable) {
+    if (type.endsWith("[]")) {
+      return "java.util.Arrays.equals(" + variable + ", " + otherVariable + ")";
+    }
+    
+    switch (type) {
+      case "float":
+        return "Float.floatToIntBits(" + variable + ") == Float.floatToIntBits(" + otherVariable + ")";
+      case "double":
+        return "Double.doubleToLongBits(" + variable + ") == Double.doubleToLongBits(" + otherVariable + ")";
+      default:
+        if (PRIMITIVE_WRAPPERS.containsKey(type)) {
+          return variable + " == " + otherVariable;
+        }
+        
+        return "(" + variable + " != null ? " + variable + ".equals(" + otherVariable + ") : " + otherVariable + " == null)";
+    }
+  }
+  
+  /**
+   * Adds reset method into model class. Reset clears fields declared in the class after calling reset 
+   * of the parent class. Collections are only dropped, because a collection may have been passed in by 
+   * the caller, but collections mappers allocated through the model are kept by the model and cleared 
+   * when mappers populate the model again.
+   * 
+   * @param modelClass model class
+   */
+  private void addReset(ModelClass modelClass) {
+    StringBuilder bodyBuilder = new StringBuilder();
+    List<ModelProperty> reusableProperties = new ArrayList<ModelProperty>();
+    
+    if (modelClass.getParentClass() != null) {
+      bodyBuilder.append("    super.reset();\n");
+    } else {
+      modelClass.addInterface(getSupportClassName("ResettableModel"));
+    }
+    
+    for (ModelProperty property : modelClass.getProperties()) {
+      if (property.getModifiers().indexOf("static") != -1) {
+        continue;
+      }
+      
+      String name = property.getName();
+      String primitiveDefault = PRIMITIVE_DEFAULTS.get(property.getFieldType());
+      
+      if (primitiveDefault != null) {
+        bodyBuilder.append("    ").append(name).append(" = ").append(primitiveDefault).append(";\n");
+      } else {
+        bodyBuilder.append("    ").append(name).append(" = null;\n");
+      }
+      
+      if (property.isReusable()) {
+        reusableProperties.add(property);
+      }
+    }
+    
+    modelClass.addMethod("public", "void", "reset", null, trimBody(bodyBuilder)).addAnnotation("@Override");
+    
+    for (ModelProperty property : reusableProperties) {
+      addListAllocation(modelClass, property);
+    }
+  }
+  
+  /**
+   * Adds method that returns an empty list for populating a list property. The list is owned by the model, 
+   * so it is allocated once and cleared on later calls, while lists passed to the setter are never cleared.
+   * 
+   * @param modelClass model class
+   * @param property list property
+   */
+  private void addListAllocation(ModelClass modelClass, ModelProperty property) {
+    String type = property.getType();
+    String implementationType = property.getImplementationType();
+    if (implementationType == null) {
+      implementationType = "java.util.ArrayList" + type.substring(type.indexOf('<'));
+    }
+    
+    String ownedName = property.getName() + "Owned";
+    modelClass.addProperty(type, ownedName);
+    modelClass.addMethod("protected", type, getListAllocatorName(property.getName()), "int capacity", 
+        "    if (" + ownedName + " == null) {\n" + 
+        "      " + ownedName + " = new " + implementationType + "(capacity);\n" + 
+        "    } else {\n" + 
+        "      " + ownedName + ".clear();\n" + 
+        "    }\n" + 
+        "    \n" + 
+        "    return " + ownedName + ";");
+  }
+  
+  private String getListAllocatorName(String propertyName) {
+    return "allocate" + StringUtils.capitalize(propertyName);
+  }
+  
+  /**
+   * Adds expanded field metadata and batch resolution into complete class. Ids of a batch of models 
+   * are collected per entity resolver class and each entity resolver class is resolved with a single 
+   * call, either sequentially or concurrently on an executor, after which the resolved models are 
+   * assigned into the expanded fields.
+   * 
+   * @param completeClass complete class
+   * @param expandedProperties expanded properties
+   */
+  private void addExpandedResolution(ModelClass completeClass, List<Element> expandedProperties) {
+    String resolverClass = getSupportClassName("ExpandedResolver");
+    String fieldsClass = getSupportClassName("ExpandedFields");
+    
+    Map<String, ModelProperty> accessorProperties = new HashMap<String, ModelProperty>();
+    for (ModelProperty property : completeClass.getAllAccessorProperties()) {
+      accessorProperties.put(property.getName(), property);
+    }
+    
+    List<String> entityResolvers = new ArrayList<String>();
+    List<String> propertyNames = new ArrayList<String>();
+    List<String> idPropertyNames = new ArrayList<String>();
+    List<String> resolverClasses = new ArrayList<String>();
+    StringBuilder collectBuilder = new StringBuilder();
+    StringBuilder assignBuilder = new StringBuilder();
+    
+    for (Element element : expandedProperties) {
+      String propertyName = getExpandedPropertyName(element);
+      ModelProperty idProperty = accessorProperties.get(getPropertyName(element));
+      ModelProperty property = accessorProperties.get(propertyName);
+      if (idProperty == null || property == null) {
+        processingEnv.getMessager().printMessage(Kind.WARNING, "Expanded field " + propertyName + " of " + completeClass.getFullyQualifiedName() + 
+            " is not resolved in batches because its id property has no getter");
+        continue;
+      }
+      
+      String entityResolver = getEntityResolverClass(element);
+      int group = entityResolvers.indexOf(entityResolver);
+      if (group == -1) {
+        group = entityResolvers.size();
+        entityResolvers.add(entityResolver);
+      }
+      
+      propertyNames.add(propertyName);
+      idPropertyNames.add(idProperty.getName());
+      resolverClasses.add(entityResolver + ".class");
+      
+      String idGetter = "model." + completeClass.getGetterName(idProperty) + "()";
+      
+      collectBuilder
+        .append("      ").append(fieldsClass).append(".collectIds(ids.get(").append(group).append("), ").append(idGetter).append(");\n");
+      assignBuilder
+        .append("      model.").append(completeClass.getSetterName(property)).append('(').append(fieldsClass)
+        .append(isCollection(element.asType()) ? ".getModels(" : ".getModel(").append("resolved.get(").append(group).append("), ").append(idGetter).append("));\n");
+    }
+    
+    if (propertyNames.isEmpty()) {
+      return;
+    }
+    
+    String modelClassName = completeClass.getName();
+    String modelsParameter = "java.util.Collection<? extends " + modelClassName + "> models";
+    String resolvedType = "java.util.List<java.util.Map<Object, TranquilModelEntity>>";
+    String concurrentParameters = resolverClass + " resolver, java.util.concurrent.Executor executor, long timeout, java.util.concurrent.TimeUnit unit";
+    
+    List<String> resolverGroups = new ArrayList<String>();
+    for (String entityResolver : entityResolvers) {
+      resolverGroups.add(entityResolver + ".class");
+    }
+    
+    completeClass.addProperty("public final static", "String[]", "EXPANDED_PROPERTIES", "{" + joinProperties(propertyNames) + "}");
+    completeClass.addProperty("public final static", "String[]", "EXPANDED_ID_PROPERTIES", "{" + joinProperties(idPropertyNames) + "}");
+    completeClass.addProperty("public final static", "Class<?>[]", "EXPANDED_RESOLVERS", "{" + StringUtils.join(resolverClasses, ", ") + "}");
+    completeClass.addProperty("private final static", "Class<?>[]", "EXPANDED_RESOLVER_GROUPS", "{" + StringUtils.join(resolverGroups, ", ") + "}");
+    
+    completeClass.addMethod("private static", "java.util.List<java.util.Set<Object>>", "collectExpandedIds", modelsParameter, 
+        "    java.util.List<java.util.Set<Object>> ids = " + fieldsClass + ".createIdSets(EXPANDED_RESOLVER_GROUPS.length);\n" + 
+        "    for (" + modelClassName + " model : models) {\n" + 
+        collectBuilder + 
+        "    }\n" + 
+        "    \n" + 
+        "    return ids;");
+    
+    completeClass.addMethod("private static", "void", "assignExpanded", modelsParameter + ", " + resolvedType + " resolved", 
+        "    for (" + modelClassName + " model : models) {\n" + 
+        assignBuilder + 
+        "    }");
+    
+    completeClass.addMethod("public static", "void", "resolveExpanded", modelsParameter + ", " + resolverClass + " resolver", 
+        "    assignExpanded(models, " + fieldsClass + ".resolve(resolver, EXPANDED_RESOLVER_GROUPS, collectExpandedIds(models)));");
+    
+    ModelMethod concurrentMethod = completeClass.addMethod("public static", "void", "resolveExpanded", modelsParameter + ", " + concurrentParameters, 
+        "    assignExpanded(models, " + fieldsClass + ".resolve(resolver, EXPANDED_RESOLVER_GROUPS, collectExpandedIds(models), executor, timeout, unit));");
+    
+    completeClass.addMethod("public", "void", "resolveExpanded", resolverClass + " resolver", 
+        "    resolveExpanded(java.util.Collections.singletonList(this), resolver);");
+    
+    ModelMethod concurrentInstanceMethod = completeClass.addMethod("public", "void", "resolveExpanded", concurrentParameters, 
+        "    resolveExpanded(java.util.Collections.singletonList(this), resolver, executor, timeout, unit);");
+    
+    for (ModelMethod method : Arrays.asList(concurrentMethod, concurrentInstanceMethod)) {
+      method.addException("InterruptedException");
+      method.addException("java.util.concurrent.ExecutionException");
+      method.addException("java.util.concurrent.TimeoutException");
+    }
+  }
+  
   private void addCompactListProperties(ModelClass compactClass, List<Element> complexListProperties) {
   	for (Element element : complexListProperties) {
       String propertyName = getPropertyName(element);
       DeclaredType listGenericType = (DeclaredType) getListGenericType((DeclaredType) getMethodReturnType(element));
       String idType = getIdTypeName(listGenericType.asElement());
-      ModelProperty property = compactClass.addProperty("java.util.List<" + idType + ">", propertyName + "_ids");
+      ModelProperty property = compactClass.addProperty(getIdListType(idType), propertyName + "_ids");
+      property.setImplementationType(getPrimitiveIdListClass(idType));
+      property.setReusable(true);
       compactClass.addGetter(property);
       compactClass.addSetter(property);
     }
   }
   
+  /**
+   * Returns primitive backed id list class used for id lists of given id type. Id lists support the mutating 
+   * List operations but can not hold null ids: adding or setting null throws NullPointerException.
+   * 
+   * @param idType id type
+   * @return name of id list class or null when id lists of given type are stored in ordinary lists 
+   */
+  private String getPrimitiveIdListClass(String idType) {
+    if (getBooleanOption("primitiveIdLists")) {
+      if ("Long".equals(idType) || "long".equals(idType)) {
+        return getSupportClassName("LongIdList");
+      } else if ("Integer".equals(idType) || "int".equals(idType)) {
+        return getSupportClassName("IntIdList");
+      }
+    }
+    
+    return null;
+  }
+  
+  /**
+   * Returns declared type of id lists of given id type. Primitive id lists are used only as the 
+   * implementation, so accessors of id lists are always declared as lists of boxed ids.
+   * 
+   * @param idType id type
+   * @return type of id lists
+   */
+  private String getIdListType(String idType) {
+    String wrapperType = PRIMITIVE_WRAPPERS.get(idType);
+    return "java.util.List<" + (wrapperType != null ? wrapperType : idType) + ">";
+  }
+  
   private void addCompleteListProperties(ModelClass completeClass, List<Element> complexListProperties) {
   	for (Element element : complexListProperties) {
       String propertyName = getPropertyName(element);
       completeClass.addImport(TranquilModelEntity.class.getCanonicalName());
       ModelProperty property = completeClass.addProperty("java.util.List<TranquilModelEntity>", propertyName);
+      property.setReusable(true);
       completeClass.addGetter(property);
       completeClass.addSetter(property);
     }
@@ -453,7 +2530,9 @@ public class TranquilModelAnnotationProcessor extends AbstractProcessor {
     
     // Resolve class tree 
     
+    long startTime = System.nanoTime();
     List<TypeElement> classTree = resolveClassTree(entity);
+    recordTime(entity, ProcessingReport.PHASE_CLASS_TREE, startTime);
         
     // Create classes
 
@@ -470,74 +2549,64 @@ public class TranquilModelAnnotationProcessor extends AbstractProcessor {
     
     Set<String> processedProperties = new HashSet<>();
     
+    startTime = System.nanoTime();
     for (int i = classTree.size() - 1; i >= 0; i--) {
-      TypeElement currentClass = classTree.get(i);
-        
-      for (Element element : currentClass.getEnclosedElements()) {
-
-        if (element.getKind() == ElementKind.METHOD) {
-          String methodName = element.getSimpleName().toString();
-          if (StringUtils.startsWith(methodName, "get")) {
-          	boolean skip = (element.getAnnotation(Transient.class) != null) || (element.getAnnotation(XmlTransient.class) != null);
-            String propertyName = getPropertyName(element);
-            if (skip == false) {
-              Element fieldElement = findField(currentClass.getEnclosedElements(), propertyName);
-              if (fieldElement != null) {
-              	skip = (fieldElement.getAnnotation(Transient.class) != null) || (fieldElement.getAnnotation(XmlTransient.class) != null);
-              }
-            }
-
-            // TODO: Skip JSONIgnore ?
-            if (!skip && !processedProperties.contains(propertyName)) {
-              TypeMirror methodReturnType = getMethodReturnType(element);
-              if (isEntity(methodReturnType)) {
-                complexProperties.add(element);
-              } else {
-                if (isCollection(methodReturnType)) {
-                  TypeMirror listGenericType = getListGenericType((DeclaredType) methodReturnType);
-
-                  if (listGenericType.getKind() == TypeKind.DECLARED && isEntity(((DeclaredType) listGenericType).asElement())) {
-                    complexListProperties.add(element);
-                  } else {
-                    baseProperties.add(element);
-                  }
-                } else {
-                  baseProperties.add(element); 
-                }
-              }
-              
-              processedProperties.add(propertyName);
-            }
-          }
-        }
-        else if (element.getKind() == ElementKind.FIELD) {
-          if (element.getAnnotation(TranquilityEntityField.class) != null) {
-            expandedProperties.add(element);
+      for (ClassProperty property : resolveClassProperties(classTree.get(i))) {
+        if (property.category == PropertyCategory.EXPANDED) {
+          expandedProperties.add(property.element);
+        } else if (processedProperties.add(property.name)) {
+          switch (property.category) {
+            case COMPLEX:
+              complexProperties.add(property.element);
+            break;
+            case COMPLEX_LIST:
+              complexListProperties.add(property.element);
+            break;
+            default:
+              baseProperties.add(property.element);
+            break;
           }
         }
       }
     }
+    
+    recordTime(entity, ProcessingReport.PHASE_PROPERTIES, startTime);
+    startTime = System.nanoTime();
 
     if (getBooleanOption("flatModel")) {
-      writeClassesFlat(packageName, className, qualifiedName, processingEnv.getElementUtils().getBinaryName(entity).toString(), 
+      writeClassesFlat(entity, packageName, className, qualifiedName, processingEnv.getElementUtils().getBinaryName(entity).toString(), 
       		baseProperties, complexProperties, expandedProperties, complexListProperties);
     } else {
-      writeClasses(packageName, className, qualifiedName, processingEnv.getElementUtils().getBinaryName(entity).toString(), 
+      writeClasses(entity, packageName, className, qualifiedName, processingEnv.getElementUtils().getBinaryName(entity).toString(), 
       		baseProperties, complexProperties, expandedProperties, complexListProperties);
     }
+    
+    recordTime(entity, ProcessingReport.PHASE_MODELS, startTime);
   }
 
-	private Element findField(List<? extends Element> elements, String name) {
-  	for (Element element : elements) {
-  		if (element.getKind() == ElementKind.FIELD) {
-  		  if (element.getSimpleName().contentEquals(name)) {
-  			  return element;
-  	  	}
-  		}
-  	}
+  /**
+   * Finds a field declared in a class
+   * 
+   * @param classElement class
+   * @param name name of the field
+   * @return field or null if not found
+   */
+  private Element findField(TypeElement classElement, String name) {
+    Map<String, Element> fields;
+    
+    if (fieldIndexCache.containsKey(classElement)) {
+      fields = fieldIndexCache.get(classElement);
+    } else {
+      fields = new HashMap<String, Element>();
+      for (Element element : ElementFilter.fieldsIn(classElement.getEnclosedElements())) {
+        fields.put(element.getSimpleName().toString(), element);
+      }
+      
+      fieldIndexCache.put(classElement, fields);
+    }
 
-		return null;
-	}
+    return fields.get(name);
+  }
 
 	private String joinProperties(List<String> strings) {
     StringBuilder resultBuilder = new StringBuilder();
@@ -563,23 +2632,32 @@ public class TranquilModelAnnotationProcessor extends AbstractProcessor {
    * @return type of id property in entity class
    */
   private String getIdTypeName(Element classElement) {
+    if (idTypeCache.containsKey(classElement)) {
+      return idTypeCache.get(classElement);
+    }
+    
+    String idTypeName = null;
+    
     for (Element element : classElement.getEnclosedElements()) {
       if (element.getKind() == ElementKind.METHOD) {
         String methodName = element.getSimpleName().toString();
         if ("getId".equals(methodName)) {
-          return getPropertyTypeName(element);
+          idTypeName = getPropertyTypeName(element);
+          break;
         }
       }
     }
     
-    TypeElement classTypeElement = (TypeElement) classElement;
-    TypeElement superClass = (TypeElement) processingEnv.getTypeUtils().asElement(classTypeElement.getSuperclass());
-    
-    if (superClass.getSuperclass().getKind() != TypeKind.NONE) {
-      return getIdTypeName(superClass);
+    if (idTypeName == null) {
+      TypeElement classTypeElement = (TypeElement) classElement;
+      TypeElement superClass = (TypeElement) processingEnv.getTypeUtils().asElement(classTypeElement.getSuperclass());
+      
+      if (superClass.getSuperclass().getKind() != TypeKind.NONE) {
+        idTypeName = getIdTypeName(superClass);
+      }
     }
 
-    return null;
+    return idTypeCache.put(classElement, idTypeName);
   }
 
   /**
@@ -721,16 +2799,14 @@ public class TranquilModelAnnotationProcessor extends AbstractProcessor {
    * @return whether element is java.util.Collection or not
    */
   private boolean isCollection(TypeElement element) {
-    String className = element.getQualifiedName().toString();
-    try {
-      Class<?> returnTypeClass = Class.forName(className);
-      if (returnTypeClass != null && java.util.Collection.class.isAssignableFrom(returnTypeClass)) {
-        return true;
-      }
-    } catch (ClassNotFoundException e) {
+    if (collectionCache.containsKey(element)) {
+      return collectionCache.get(element);
     }
     
-    return false;
+    Types typeUtils = processingEnv.getTypeUtils();
+    TypeMirror collectionType = typeUtils.erasure(processingEnv.getElementUtils().getTypeElement("java.util.Collection").asType());
+    
+    return collectionCache.put(element, typeUtils.isAssignable(typeUtils.erasure(element.asType()), collectionType));
   }
   
   /**
@@ -757,13 +2833,36 @@ public class TranquilModelAnnotationProcessor extends AbstractProcessor {
 		return "true".equalsIgnoreCase(getOption(name));
 	}
 
+  private int getIntegerOption(String name) {
+    return Integer.parseInt(getOption(name));
+  }
+
   private int round = 0;
+  private IntrospectionCache<TypeElement, List<TypeElement>> classTreeCache = new IntrospectionCache<TypeElement, List<TypeElement>>("classTree");
+  private IntrospectionCache<TypeElement, List<ClassProperty>> classPropertyCache = new IntrospectionCache<TypeElement, List<ClassProperty>>("classProperties");
+  private IntrospectionCache<TypeElement, Map<String, Element>> fieldIndexCache = new IntrospectionCache<TypeElement, Map<String, Element>>("fieldIndex");
+  private IntrospectionCache<Element, String> idTypeCache = new IntrospectionCache<Element, String>("idType");
+  private IntrospectionCache<TypeElement, Boolean> collectionCache = new IntrospectionCache<TypeElement, Boolean>("collection");
+  private boolean aggregatesWritten = false;
+  private List<TypeElement> entities;
   private ClassWriter classWriter = new ClassWriter();
+  private List<QueuedClass> queuedClasses = new ArrayList<QueuedClass>();
+  private ProcessingReport report;
   private Map<String, String> baseClasses;
   private Map<String, String> compactClasses;
   private Map<String, String> completeClasses;
+  private StringBuilder modelIndex;
   
+  private static final int PERFECT_HASH_ATTEMPTS = 4096;
+  private static final String MODEL_INDEX_RESOURCE = "META-INF/tranquil/model.index";
+  private static final String REPORT_RESOURCE = "tranquil-report.json";
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
   private static final Map<String, String> DEFAULT_OPTIONS;
+  private static final Map<String, String> PRIMITIVE_WRAPPERS;
+  private static final Map<String, String> PRIMITIVE_TYPES;
+  private static final Map<String, String> PRIMITIVE_DEFAULTS;
+  private static final Map<String, BinaryKind> BINARY_KINDS;
+  private static final String RUNTIME_PACKAGE = "fi.tranquil";
   
   static {
   	DEFAULT_OPTIONS = new HashMap<String, String>();
@@ -774,6 +2873,163 @@ public class TranquilModelAnnotationProcessor extends AbstractProcessor {
   	DEFAULT_OPTIONS.put("basePostfix", "Base");
   	DEFAULT_OPTIONS.put("compactPostfix", "Compact");
   	DEFAULT_OPTIONS.put("completePostfix", "Complete");
+  	DEFAULT_OPTIONS.put("generateLookups", "true");
+  	DEFAULT_OPTIONS.put("generateSupportClasses", "true");
+  	DEFAULT_OPTIONS.put("supportPackage", "");
+  	DEFAULT_OPTIONS.put("lookupShardSize", "256");
+  	DEFAULT_OPTIONS.put("renderThreads", "1");
+  	DEFAULT_OPTIONS.put("generateMappers", "false");
+  	DEFAULT_OPTIONS.put("mapperPostfix", "Mapper");
+  	DEFAULT_OPTIONS.put("generateAccessors", "false");
+  	DEFAULT_OPTIONS.put("generateFieldMasks", "false");
+  	DEFAULT_OPTIONS.put("generateModelIndex", "false");
+  	DEFAULT_OPTIONS.put("generateReport", "false");
+  	DEFAULT_OPTIONS.put("generateJsonWriters", "false");
+  	DEFAULT_OPTIONS.put("generateBinaryCodecs", "false");
+  	DEFAULT_OPTIONS.put("primitiveIdLists", "false");
+  	DEFAULT_OPTIONS.put("primitiveFields", "false");
+  	DEFAULT_OPTIONS.put("generateExpandedResolvers", "false");
+  	DEFAULT_OPTIONS.put("generateLazyModels", "false");
+  	DEFAULT_OPTIONS.put("generateReset", "false");
+  	DEFAULT_OPTIONS.put("generateChunkedMappers", "false");
+  	DEFAULT_OPTIONS.put("generateParallelMappers", "false");
+  	DEFAULT_OPTIONS.put("generateCompactValues", "false");
+  	DEFAULT_OPTIONS.put("generateModelCaches", "false");
+  	DEFAULT_OPTIONS.put("modelCacheSize", "1024");
+  	DEFAULT_OPTIONS.put("verbose", "true");
+  	
+  	PRIMITIVE_WRAPPERS = new HashMap<String, String>();
+  	PRIMITIVE_WRAPPERS.put("boolean", "Boolean");
+  	PRIMITIVE_WRAPPERS.put("byte", "Byte");
+  	PRIMITIVE_WRAPPERS.put("short", "Short");
+  	PRIMITIVE_WRAPPERS.put("int", "Integer");
+  	PRIMITIVE_WRAPPERS.put("long", "Long");
+  	PRIMITIVE_WRAPPERS.put("char", "Character");
+  	PRIMITIVE_WRAPPERS.put("float", "Float");
+  	PRIMITIVE_WRAPPERS.put("double", "Double");
+  	
+  	PRIMITIVE_TYPES = new HashMap<String, String>();
+  	for (Map.Entry<String, String> wrapper : PRIMITIVE_WRAPPERS.entrySet()) {
+  	  PRIMITIVE_TYPES.put(wrapper.getValue(), wrapper.getKey());
+  	}
+  	
+  	PRIMITIVE_DEFAULTS = new HashMap<String, String>();
+  	PRIMITIVE_DEFAULTS.put("boolean", "false");
+  	PRIMITIVE_DEFAULTS.put("byte", "(byte) 0");
+  	PRIMITIVE_DEFAULTS.put("short", "(short) 0");
+  	PRIMITIVE_DEFAULTS.put("int", "0");
+  	PRIMITIVE_DEFAULTS.put("long", "0l");
+  	PRIMITIVE_DEFAULTS.put("char", "'\\0'");
+  	PRIMITIVE_DEFAULTS.put("float", "0f");
+  	PRIMITIVE_DEFAULTS.put("double", "0d");
+  	
+  	BINARY_KINDS = new HashMap<String, BinaryKind>();
+  	BINARY_KINDS.put("boolean", BinaryKind.BOOLEAN);
+  	BINARY_KINDS.put("Boolean", BinaryKind.BOOLEAN);
+  	BINARY_KINDS.put("byte", BinaryKind.BYTE);
+  	BINARY_KINDS.put("Byte", BinaryKind.BYTE);
+  	BINARY_KINDS.put("short", BinaryKind.SHORT);
+  	BINARY_KINDS.put("Short", BinaryKind.SHORT);
+  	BINARY_KINDS.put("char", BinaryKind.CHAR);
+  	BINARY_KINDS.put("Character", BinaryKind.CHAR);
+  	BINARY_KINDS.put("int", BinaryKind.INTEGER);
+  	BINARY_KINDS.put("Integer", BinaryKind.INTEGER);
+  	BINARY_KINDS.put("long", BinaryKind.LONG);
+  	BINARY_KINDS.put("Long", BinaryKind.LONG);
+  	BINARY_KINDS.put("float", BinaryKind.FLOAT);
+  	BINARY_KINDS.put("Float", BinaryKind.FLOAT);
+  	BINARY_KINDS.put("double", BinaryKind.DOUBLE);
+  	BINARY_KINDS.put("Double", BinaryKind.DOUBLE);
+  	BINARY_KINDS.put("String", BinaryKind.STRING);
+  	BINARY_KINDS.put("java.util.Date", BinaryKind.DATE);
+  }
+  
+  private enum PropertyCategory {
+    BASE,
+    COMPLEX,
+    COMPLEX_LIST,
+    EXPANDED
+  }
+  
+  /**
+   * Encoding of a property type in binary codecs. Code templates refer to the BinaryCodec support class 
+   * as $codec, to the value as $value and to the property type as $type.
+   */
+  private enum BinaryKind {
+    BOOLEAN("1", "buffer.put($value ? (byte) 1 : (byte) 0);", "buffer.get() != 0"),
+    BYTE("1", "buffer.put($value);", "buffer.get()"),
+    SHORT("2", "buffer.putShort($value);", "buffer.getShort()"),
+    CHAR("2", "buffer.putChar($value);", "buffer.getChar()"),
+    INTEGER("$codec.sizeOfVarInt($value)", "$codec.writeVarInt(buffer, $value);", "$codec.readVarInt(buffer)"),
+    LONG("$codec.sizeOfVarLong($value)", "$codec.writeVarLong(buffer, $value);", "$codec.readVarLong(buffer)"),
+    FLOAT("4", "buffer.putFloat($value);", "buffer.getFloat()"),
+    DOUBLE("8", "buffer.putDouble($value);", "buffer.getDouble()"),
+    STRING("$codec.sizeOfString($value)", "$codec.writeString(buffer, $value);", "$codec.readString(buffer)"),
+    DATE("$codec.sizeOfVarLong($value.getTime())", "$codec.writeVarLong(buffer, $value.getTime());", "new java.util.Date($codec.readVarLong(buffer))"),
+    ENUM("$codec.sizeOfString($value.name())", "$codec.writeString(buffer, $value.name());", "$type.valueOf($codec.readString(buffer))"),
+    LONG_LIST("$codec.sizeOfLongs($value)", "$codec.writeLongs(buffer, $value);", "$codec.readLongList(buffer)"),
+    LONG_SET("$codec.sizeOfLongs($value)", "$codec.writeLongs(buffer, $value);", "$codec.readLongSet(buffer)"),
+    INTEGER_LIST("$codec.sizeOfIntegers($value)", "$codec.writeIntegers(buffer, $value);", "$codec.readIntegerList(buffer)"),
+    INTEGER_SET("$codec.sizeOfIntegers($value)", "$codec.writeIntegers(buffer, $value);", "$codec.readIntegerSet(buffer)"),
+    STRING_LIST("$codec.sizeOfStrings($value)", "$codec.writeStrings(buffer, $value);", "$codec.readStringList(buffer)"),
+    STRING_SET("$codec.sizeOfStrings($value)", "$codec.writeStrings(buffer, $value);", "$codec.readStringSet(buffer)"),
+    LONG_ID_LIST("$codec.sizeOfLongs($value)", "$codec.writeLongs(buffer, $value);", "$codec.readLongIdList(buffer)"),
+    INTEGER_ID_LIST("$codec.sizeOfIntegers($value)", "$codec.writeIntegers(buffer, $value);", "$codec.readIntIdList(buffer)");
+    
+    private BinaryKind(String size, String write, String read) {
+      this.size = size;
+      this.write = write;
+      this.read = read;
+    }
+    
+    public String getSize(String codecClass, String value) {
+      return size.replace("$codec", codecClass).replace("$value", value);
+    }
+    
+    public String getWrite(String codecClass, String value) {
+      return write.replace("$codec", codecClass).replace("$value", value);
+    }
+    
+    public String getRead(String codecClass, String type) {
+      return read.replace("$codec", codecClass).replace("$type", type);
+    }
+    
+    private String size;
+    private String write;
+    private String read;
+  }
+  
+  /**
+   * Property declared in a single class of entity class tree
+   */
+  private static class ClassProperty {
+    
+    public ClassProperty(String name, Element element, PropertyCategory category) {
+      this.name = name;
+      this.element = element;
+      this.category = category;
+    }
+    
+    private String name;
+    private Element element;
+    private PropertyCategory category;
   }
   
+  /**
+   * Class waiting to be rendered and written
+   */
+  private static class QueuedClass {
+    
+    public QueuedClass(String name, ModelClass modelClass, String owner, Element[] originatingElements) {
+      this.name = name;
+      this.modelClass = modelClass;
+      this.owner = owner;
+      this.originatingElements = originatingElements;
+    }
+    
+    private String name;
+    private ModelClass modelClass;
+    private String owner;
+    private Element[] originatingElements;
+  }
 }
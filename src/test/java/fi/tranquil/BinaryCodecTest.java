@@ -0,0 +1,142 @@
+package fi.tranquil;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import javax.tools.Diagnostic;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class BinaryCodecTest {
+
+  @BeforeClass
+  public static void generateModels() throws IOException {
+    models = GeneratedModels.compile("-AgenerateMappers=true", "-AgenerateBinaryCodecs=true", "-AprimitiveIdLists=true");
+  }
+
+  @AfterClass
+  public static void closeModels() throws IOException {
+    models.close();
+  }
+
+  @Test
+  public void testRoundTrip() throws ReflectiveOperationException {
+    Object compact = models.invokeStatic("ProjectMapper", "toCompact", createProject());
+    
+    Object decoded = decode("ProjectCompact", encode(compact, false));
+    assertEquals(123456789012l, models.invoke(decoded, "getId"));
+    assertEquals(3l, models.invoke(decoded, "getVersion"));
+    assertEquals("Päivä é 😀", models.invoke(decoded, "getName"));
+    assertEquals(-3, models.invoke(decoded, "getPriority"));
+    assertEquals(Boolean.TRUE, models.invoke(decoded, "getArchived"));
+    assertEquals(new LinkedHashSet<String>(Arrays.asList("b", "a")), models.invoke(decoded, "getTags"));
+    assertEquals(Arrays.asList(7l, -9l), models.invoke(decoded, "getTasks_ids"));
+    assertEquals(models.loadSupportClass("LongIdList"), models.invoke(decoded, "getTasks_ids").getClass());
+  }
+
+  @Test
+  public void testDirectBuffer() throws ReflectiveOperationException {
+    Object compact = models.invokeStatic("ProjectMapper", "toCompact", createProject());
+    
+    Object decoded = decode("ProjectCompact", encode(compact, true));
+    assertEquals(models.invoke(compact, "getName"), models.invoke(decoded, "getName"));
+    assertEquals(models.invoke(compact, "getTasks_ids"), models.invoke(decoded, "getTasks_ids"));
+  }
+
+  @Test
+  public void testNullProperties() throws ReflectiveOperationException {
+    Object decoded = decode("ProjectCompact", encode(models.newInstance("ProjectCompact"), false));
+    assertNull(models.invoke(decoded, "getId"));
+    assertNull(models.invoke(decoded, "getName"));
+    assertNull(models.invoke(decoded, "getTags"));
+    assertNull(models.invoke(decoded, "getTasks_ids"));
+  }
+
+  @Test
+  public void testSchemaMismatch() throws ReflectiveOperationException {
+    ByteBuffer buffer = encode(models.invokeStatic("ProjectMapper", "toCompact", createProject()), false);
+    try {
+      decode("TaskCompact", buffer);
+      fail("Project was decoded as a task");
+    } catch (IllegalStateException e) {
+      assertEquals("SchemaMismatchException", e.getClass().getSimpleName());
+    }
+  }
+
+  @Test(expected = BufferUnderflowException.class)
+  public void testTruncatedModel() throws ReflectiveOperationException {
+    ByteBuffer buffer = encode(models.invokeStatic("ProjectMapper", "toCompact", createProject()), false);
+    buffer.limit(buffer.limit() - 1);
+    decode("ProjectCompact", buffer);
+  }
+
+  @Test(expected = BufferUnderflowException.class)
+  public void testStringLengthExceedsBuffer() throws ReflectiveOperationException {
+    ByteBuffer buffer = ByteBuffer.allocate(8);
+    models.invokeStatic(models.loadSupportClass("BinaryCodec"), "writeUnsignedVarInt", buffer, 100);
+    buffer.put((byte) 'a');
+    buffer.flip();
+    models.invokeStatic(models.loadSupportClass("BinaryCodec"), "readString", buffer);
+  }
+
+  @Test(expected = BufferUnderflowException.class)
+  public void testListSizeExceedsBuffer() throws ReflectiveOperationException {
+    ByteBuffer buffer = ByteBuffer.allocate(8);
+    models.invokeStatic(models.loadSupportClass("BinaryCodec"), "writeUnsignedVarInt", buffer, Integer.MAX_VALUE);
+    buffer.flip();
+    models.invokeStatic(models.loadSupportClass("BinaryCodec"), "readLongList", buffer);
+  }
+
+  @Test
+  public void testNestedModelsAreReported() {
+    List<String> notes = models.getMessages(Diagnostic.Kind.NOTE);
+    assertTrue(notes.toString(), notes.contains("Binary codec is not generated for " + GeneratedModels.SAMPLE_PACKAGE +
+        ".TaskComplete because property project contains nested models"));
+  }
+
+  private Object createProject() throws ReflectiveOperationException {
+    Object project = models.newInstance("Project");
+    models.invoke(project, "setId", 123456789012l);
+    models.invoke(project, "setVersion", 3l);
+    models.invoke(project, "setName", "Päivä é 😀");
+    models.invoke(project, "setPriority", -3);
+    models.invoke(project, "setArchived", true);
+    models.invoke(project, "setTags", new LinkedHashSet<String>(Arrays.asList("b", "a")));
+    models.invoke(project, "setTasks", Arrays.asList(createTask(7l), createTask(-9l)));
+    return project;
+  }
+
+  private Object createTask(long id) throws ReflectiveOperationException {
+    Object task = models.newInstance("Task");
+    models.invoke(task, "setId", id);
+    return task;
+  }
+
+  private ByteBuffer encode(Object model, boolean direct) throws ReflectiveOperationException {
+    int size = (Integer) models.invoke(model, "getBinarySize");
+    ByteBuffer buffer = direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+    models.invoke(model, "writeBinary", buffer);
+    assertEquals(0, buffer.remaining());
+    buffer.flip();
+    return buffer;
+  }
+
+  private Object decode(String className, ByteBuffer buffer) throws ReflectiveOperationException {
+    Object result = models.invokeStatic(className, "fromBinary", buffer);
+    assertEquals(0, buffer.remaining());
+    return result;
+  }
+
+  private static GeneratedModels models;
+}
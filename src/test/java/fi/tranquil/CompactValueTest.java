@@ -0,0 +1,147 @@
+package fi.tranquil;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class CompactValueTest {
+
+  @BeforeClass
+  public static void generateModels() throws IOException {
+    models = GeneratedModels.compile("-AgenerateMappers=true", "-AgenerateCompactValues=true", "-AprimitiveIdLists=true");
+  }
+
+  @AfterClass
+  public static void closeModels() throws IOException {
+    models.close();
+  }
+
+  @Test
+  public void testImmutable() throws ReflectiveOperationException {
+    Class<?> valueClass = models.loadClass("ProjectCompactValue");
+    assertTrue(Modifier.isFinal(valueClass.getModifiers()));
+    for (Field field : valueClass.getDeclaredFields()) {
+      assertTrue(field.getName(), Modifier.isFinal(field.getModifiers()));
+    }
+  }
+
+  @Test
+  public void testEqualsAndHashCode() throws ReflectiveOperationException {
+    Object value = createValue("equals", 4);
+    Object equalValue = createValue("equals", 4);
+    assertNotSame(value, equalValue);
+    assertEquals(value, equalValue);
+    assertEquals(value.hashCode(), equalValue.hashCode());
+    
+    assertFalse(value.equals(createValue("equals", 5)));
+    assertFalse(value.equals(createValue("other", 4)));
+    assertFalse(value.equals(null));
+    
+    Object emptyValue = build(models.invokeStatic("ProjectCompactValue", "builder"));
+    assertEquals(emptyValue, build(models.invokeStatic("ProjectCompactValue", "builder")));
+    assertFalse(emptyValue.equals(value));
+    assertFalse(value.equals(emptyValue));
+  }
+
+  @Test
+  public void testMapKey() throws ReflectiveOperationException {
+    Map<Object, String> map = new HashMap<Object, String>();
+    map.put(createValue("key", 1), "first");
+    map.put(createValue("key", 2), "second");
+    assertEquals("first", map.get(createValue("key", 1)));
+    assertEquals("second", map.get(createValue("key", 2)));
+    assertEquals(2, map.size());
+  }
+
+  @Test
+  public void testIntern() throws ReflectiveOperationException {
+    Object value = createValue("intern", 1);
+    Object interned = models.invoke(value, "intern");
+    assertSame(value, interned);
+    assertSame(interned, models.invoke(createValue("intern", 1), "intern"));
+    assertNotSame(interned, models.invoke(createValue("intern", 2), "intern"));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testDefensiveCopies() throws ReflectiveOperationException {
+    Set<String> tags = new LinkedHashSet<String>(Arrays.asList("a"));
+    List<Long> ids = new ArrayList<Long>(Arrays.asList(1l, 2l));
+    Object builder = models.invokeStatic("ProjectCompactValue", "builder");
+    models.invoke(builder, "setTags", tags);
+    models.invoke(builder, "setTasks_ids", ids);
+    Object value = build(builder);
+    int hashCode = value.hashCode();
+    
+    tags.add("b");
+    ids.add(3l);
+    assertEquals(new LinkedHashSet<String>(Arrays.asList("a")), models.invoke(value, "getTags"));
+    assertEquals(Arrays.asList(1l, 2l), models.invoke(value, "getTasks_ids"));
+    assertEquals(hashCode, value.hashCode());
+    
+    try {
+      ((Set<String>) models.invoke(value, "getTags")).add("c");
+      fail("Tags of a value could be modified");
+    } catch (UnsupportedOperationException e) {
+    }
+    
+    try {
+      ((List<Long>) models.invoke(value, "getTasks_ids")).add(4l);
+      fail("Ids of a value could be modified");
+    } catch (UnsupportedOperationException e) {
+    }
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testValueOfCopiesModel() throws ReflectiveOperationException {
+    Object compact = models.invokeStatic("ProjectMapper", "toCompact", createProject("copy", 1));
+    Object value = models.invokeStatic("ProjectCompactValue", "valueOf", compact);
+    
+    ((List<Long>) models.invoke(compact, "getTasks_ids")).clear();
+    models.invoke(compact, "setName", "changed");
+    assertEquals("copy", models.invoke(value, "getName"));
+    assertEquals(Arrays.asList(5l), models.invoke(value, "getTasks_ids"));
+  }
+
+  private Object createValue(String name, int priority) throws ReflectiveOperationException {
+    return models.invokeStatic("ProjectCompactValue", "valueOf", models.invokeStatic("ProjectMapper", "toCompact", createProject(name, priority)));
+  }
+
+  private Object createProject(String name, int priority) throws ReflectiveOperationException {
+    Object task = models.newInstance("Task");
+    models.invoke(task, "setId", 5l);
+    
+    Object project = models.newInstance("Project");
+    models.invoke(project, "setId", 1l);
+    models.invoke(project, "setName", name);
+    models.invoke(project, "setPriority", priority);
+    models.invoke(project, "setTags", new LinkedHashSet<String>(Arrays.asList("tag")));
+    models.invoke(project, "setTasks", Arrays.asList(task));
+    return project;
+  }
+
+  private Object build(Object builder) throws ReflectiveOperationException {
+    return models.invoke(builder, "build");
+  }
+
+  private static GeneratedModels models;
+}
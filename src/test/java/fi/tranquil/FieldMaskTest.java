@@ -0,0 +1,107 @@
+package fi.tranquil;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class FieldMaskTest {
+
+  @BeforeClass
+  public static void generateModels() throws IOException {
+    models = GeneratedModels.compile("-AgenerateMappers=true", "-AgenerateFieldMasks=true", "-AprimitiveFields=true");
+  }
+
+  @AfterClass
+  public static void closeModels() throws IOException {
+    models.close();
+  }
+
+  @Test
+  public void testOrdinalOfEveryProperty() throws ReflectiveOperationException {
+    for (String className : Arrays.asList("ProjectBase", "ProjectCompact", "ProjectComplete", "TaskCompact", "TaskComplete")) {
+      Object model = models.newInstance(className);
+      int propertyCount = (Integer) models.invoke(model, "getPropertyCount");
+      for (int ordinal = 0; ordinal < propertyCount; ordinal++) {
+        String name = (String) models.invoke(model, "getPropertyName", ordinal);
+        assertEquals(className + "." + name, ordinal, models.invokeStatic(className, "ordinalOf", name));
+      }
+    }
+  }
+
+  @Test
+  public void testOrdinalOfUnknownProperty() throws ReflectiveOperationException {
+    assertEquals(-1, models.invokeStatic("ProjectCompact", "ordinalOf", "unknown"));
+    assertEquals(-1, models.invokeStatic("ProjectCompact", "ordinalOf", "Name"));
+    assertEquals(-1, models.invokeStatic("ProjectCompact", "ordinalOf", "tasks"));
+    assertEquals(-1, models.invokeStatic("ProjectCompact", "ordinalOf", ""));
+    assertEquals(-1, models.invokeStatic("ProjectCompact", "ordinalOf", (Object) null));
+  }
+
+  @Test
+  public void testCreateFieldMask() throws ReflectiveOperationException {
+    Object fieldMask = models.invokeStatic("ProjectCompact", "createFieldMask", "name, tasks_ids,unknown");
+    assertTrue((Boolean) models.invoke(fieldMask, "contains", models.invokeStatic("ProjectCompact", "ordinalOf", "name")));
+    assertTrue((Boolean) models.invoke(fieldMask, "contains", models.invokeStatic("ProjectCompact", "ordinalOf", "tasks_ids")));
+    assertFalse((Boolean) models.invoke(fieldMask, "contains", models.invokeStatic("ProjectCompact", "ordinalOf", "id")));
+    assertFalse((Boolean) models.invoke(fieldMask, "contains", -1));
+  }
+
+  @Test
+  public void testApply() throws ReflectiveOperationException {
+    Object fieldMask = models.invokeStatic("ProjectCompact", "createFieldMask", "name,tasks_ids");
+    Object compact = models.invokeStatic("ProjectMapper", "toCompact", createProject());
+    
+    assertSame(compact, models.invoke(fieldMask, "apply", compact));
+    assertEquals("Project", models.invoke(compact, "getName"));
+    assertEquals(Arrays.asList(5l), models.invoke(compact, "getTasks_ids"));
+    assertNull(models.invoke(compact, "getId"));
+    assertNull(models.invoke(compact, "getVersion"));
+    assertNull(models.invoke(compact, "getPriority"));
+    assertNull(models.invoke(compact, "getTags"));
+    assertEquals(Boolean.FALSE, models.invoke(compact, "getArchived"));
+  }
+
+  @Test
+  public void testApplyList() throws ReflectiveOperationException {
+    Object fieldMask = models.invokeStatic("ProjectComplete", "createFieldMask", "id");
+    List<Object> completes = Arrays.asList(
+      models.invokeStatic("ProjectMapper", "toComplete", createProject()),
+      models.invokeStatic("ProjectMapper", "toComplete", createProject())
+    );
+    
+    models.invoke(fieldMask, "apply", completes);
+    for (Object complete : completes) {
+      assertEquals(1l, models.invoke(complete, "getId"));
+      assertNull(models.invoke(complete, "getName"));
+      assertNull(models.invoke(complete, "getTasks"));
+    }
+  }
+
+  private Object createProject() throws ReflectiveOperationException {
+    Object task = models.newInstance("Task");
+    models.invoke(task, "setId", 5l);
+    
+    Object project = models.newInstance("Project");
+    models.invoke(project, "setId", 1l);
+    models.invoke(project, "setVersion", 2l);
+    models.invoke(project, "setName", "Project");
+    models.invoke(project, "setPriority", 4);
+    models.invoke(project, "setArchived", true);
+    models.invoke(project, "setTags", new LinkedHashSet<String>(Arrays.asList("tag")));
+    models.invoke(project, "setTasks", Arrays.asList(task));
+    return project;
+  }
+
+  private static GeneratedModels models;
+}
@@ -0,0 +1,313 @@
+package fi.tranquil;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+
+/**
+ * Runs the annotation processor over the sample entities of src/test/resources/fi/tranquil/sample and
+ * loads the generated classes. Generated classes are accessed reflectively, because they do not
+ * exist when the tests are compiled.
+ */
+public class GeneratedModels implements Closeable {
+
+  public static final String SAMPLE_PACKAGE = "fi.tranquil.sample";
+  public static final String SUPPORT_PACKAGE = SAMPLE_PACKAGE + ".support";
+
+  private static final String[] SAMPLE_SOURCES = { "AbstractEntity", "Project", "Task" };
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private GeneratedModels(File outputDirectory, URLClassLoader classLoader, List<Diagnostic<? extends JavaFileObject>> diagnostics) {
+    this.outputDirectory = outputDirectory;
+    this.classLoader = classLoader;
+    this.diagnostics = diagnostics;
+  }
+
+  /**
+   * Compiles the sample entities with the processor
+   *
+   * @param options processor options (e.g. -AgenerateMappers=true)
+   * @return generated models
+   * @throws IOException when sources could not be read or written
+   * @throws AssertionError when compilation fails
+   */
+  public static GeneratedModels compile(String... options) throws IOException {
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    if (compiler == null) {
+      throw new IllegalStateException("Tests must be run with a JDK");
+    }
+    
+    File outputDirectory = Files.createTempDirectory("tranquil-model-gen").toFile();
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+    StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, Locale.ROOT, UTF_8);
+    try {
+      fileManager.setLocation(StandardLocation.CLASS_OUTPUT, Collections.singletonList(outputDirectory));
+      fileManager.setLocation(StandardLocation.SOURCE_OUTPUT, Collections.singletonList(outputDirectory));
+      
+      List<String> compilerOptions = new ArrayList<String>();
+      compilerOptions.add("-classpath");
+      compilerOptions.add(System.getProperty("surefire.test.class.path", System.getProperty("java.class.path")));
+      compilerOptions.add("-AlookupPackage=" + SAMPLE_PACKAGE);
+      compilerOptions.add("-AsupportPackage=" + SUPPORT_PACKAGE);
+      compilerOptions.addAll(Arrays.asList(options));
+      
+      List<JavaFileObject> sources = new ArrayList<JavaFileObject>();
+      for (String sample : SAMPLE_SOURCES) {
+        sources.add(new SampleSource(sample, readSample(sample)));
+      }
+      
+      JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics, compilerOptions, null, sources);
+      task.setProcessors(Collections.singletonList(new TranquilModelAnnotationProcessor()));
+      if (!task.call()) {
+        StringBuilder messageBuilder = new StringBuilder("Compilation of sample entities failed");
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+          if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+            messageBuilder.append('\n').append(diagnostic.getMessage(Locale.ROOT));
+          }
+        }
+        
+        throw new AssertionError(messageBuilder.toString());
+      }
+    } finally {
+      fileManager.close();
+    }
+    
+    URLClassLoader classLoader = new URLClassLoader(new URL[] { outputDirectory.toURI().toURL() }, GeneratedModels.class.getClassLoader());
+    return new GeneratedModels(outputDirectory, classLoader, diagnostics.getDiagnostics());
+  }
+
+  /**
+   * Returns messages the processor reported with given kind
+   *
+   * @param kind kind of the diagnostic
+   * @return messages
+   */
+  public List<String> getMessages(Diagnostic.Kind kind) {
+    List<String> result = new ArrayList<String>();
+    for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics) {
+      if (diagnostic.getKind() == kind) {
+        result.add(diagnostic.getMessage(Locale.ROOT));
+      }
+    }
+    
+    return result;
+  }
+
+  /**
+   * Loads a generated class or a sample entity
+   *
+   * @param name simple name of a class in the sample package or a qualified name
+   * @return class
+   * @throws ClassNotFoundException when class was not generated
+   */
+  public Class<?> loadClass(String name) throws ClassNotFoundException {
+    return classLoader.loadClass(name.indexOf('.') == -1 ? SAMPLE_PACKAGE + '.' + name : name);
+  }
+
+  /**
+   * Loads a generated support class
+   *
+   * @param name simple name of the support class
+   * @return class
+   * @throws ClassNotFoundException when class was not generated
+   */
+  public Class<?> loadSupportClass(String name) throws ClassNotFoundException {
+    return loadClass(SUPPORT_PACKAGE + '.' + name);
+  }
+
+  public Object newInstance(String className) throws ReflectiveOperationException {
+    return newInstance(loadClass(className));
+  }
+
+  public Object newInstance(Class<?> type, Object... arguments) throws ReflectiveOperationException {
+    for (Constructor<?> constructor : type.getDeclaredConstructors()) {
+      if (Modifier.isPublic(constructor.getModifiers()) && isApplicable(constructor.getParameterTypes(), arguments)) {
+        try {
+          return constructor.newInstance(arguments);
+        } catch (InvocationTargetException e) {
+          throw rethrow(e);
+        }
+      }
+    }
+    
+    throw new NoSuchMethodException("No public constructor of " + type.getName() + " accepts " + Arrays.toString(arguments));
+  }
+
+  /**
+   * Invokes a public method of an object. Method is chosen by name and the types of the arguments.
+   * Exceptions thrown by the method are rethrown as they are when they are unchecked.
+   *
+   * @param target object
+   * @param methodName name of the method
+   * @param arguments arguments
+   * @return return value of the method
+   * @throws ReflectiveOperationException when there is no such method
+   */
+  public Object invoke(Object target, String methodName, Object... arguments) throws ReflectiveOperationException {
+    return invokeMethod(target.getClass(), target, methodName, arguments);
+  }
+
+  public Object invokeStatic(String className, String methodName, Object... arguments) throws ReflectiveOperationException {
+    return invokeMethod(loadClass(className), null, methodName, arguments);
+  }
+
+  public Object invokeStatic(Class<?> type, String methodName, Object... arguments) throws ReflectiveOperationException {
+    return invokeMethod(type, null, methodName, arguments);
+  }
+
+  public Object getStatic(String className, String fieldName) throws ReflectiveOperationException {
+    return loadClass(className).getField(fieldName).get(null);
+  }
+
+  /**
+   * Closes the class loader and removes the generated files
+   */
+  @Override
+  public void close() throws IOException {
+    classLoader.close();
+    delete(outputDirectory);
+  }
+
+  private Object invokeMethod(Class<?> type, Object target, String methodName, Object... arguments) throws ReflectiveOperationException {
+    for (Method method : type.getMethods()) {
+      if (method.getName().equals(methodName) && isApplicable(method.getParameterTypes(), arguments)) {
+        try {
+          return method.invoke(target, arguments);
+        } catch (InvocationTargetException e) {
+          throw rethrow(e);
+        }
+      }
+    }
+    
+    throw new NoSuchMethodException("No public method " + type.getName() + '.' + methodName + " accepts " + Arrays.toString(arguments));
+  }
+
+  private static boolean isApplicable(Class<?>[] parameterTypes, Object[] arguments) {
+    if (parameterTypes.length != arguments.length) {
+      return false;
+    }
+    
+    for (int i = 0; i < parameterTypes.length; i++) {
+      Class<?> parameterType = parameterTypes[i];
+      if (arguments[i] == null) {
+        if (parameterType.isPrimitive()) {
+          return false;
+        }
+      } else if (!getBoxedType(parameterType).isInstance(arguments[i])) {
+        return false;
+      }
+    }
+    
+    return true;
+  }
+
+  private static Class<?> getBoxedType(Class<?> type) {
+    if (!type.isPrimitive()) {
+      return type;
+    }
+    
+    if (type == int.class) {
+      return Integer.class;
+    } else if (type == long.class) {
+      return Long.class;
+    } else if (type == boolean.class) {
+      return Boolean.class;
+    } else if (type == double.class) {
+      return Double.class;
+    } else if (type == float.class) {
+      return Float.class;
+    } else if (type == short.class) {
+      return Short.class;
+    } else if (type == byte.class) {
+      return Byte.class;
+    }
+    
+    return Character.class;
+  }
+
+  private static ReflectiveOperationException rethrow(InvocationTargetException e) {
+    Throwable cause = e.getCause();
+    if (cause instanceof RuntimeException) {
+      throw (RuntimeException) cause;
+    } else if (cause instanceof Error) {
+      throw (Error) cause;
+    }
+    
+    return e;
+  }
+
+  private static String readSample(String name) throws IOException {
+    InputStream inputStream = GeneratedModels.class.getResourceAsStream("sample/" + name + ".java");
+    if (inputStream == null) {
+      throw new IOException("Sample " + name + " not found");
+    }
+    
+    try {
+      ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+      byte[] buffer = new byte[4096];
+      int length;
+      while ((length = inputStream.read(buffer)) != -1) {
+        outputStream.write(buffer, 0, length);
+      }
+      
+      return new String(outputStream.toByteArray(), UTF_8);
+    } finally {
+      inputStream.close();
+    }
+  }
+
+  private static void delete(File file) {
+    File[] children = file.listFiles();
+    if (children != null) {
+      for (File child : children) {
+        delete(child);
+      }
+    }
+    
+    file.delete();
+  }
+
+  private File outputDirectory;
+  private URLClassLoader classLoader;
+  private List<Diagnostic<? extends JavaFileObject>> diagnostics;
+
+  private static class SampleSource extends SimpleJavaFileObject {
+    
+    public SampleSource(String name, String source) {
+      super(URI.create("string:///" + SAMPLE_PACKAGE.replace('.', '/') + '/' + name + Kind.SOURCE.extension), Kind.SOURCE);
+      this.source = source;
+    }
+    
+    @Override
+    public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+      return source;
+    }
+    
+    private String source;
+  }
+}
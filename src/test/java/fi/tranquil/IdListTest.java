@@ -0,0 +1,201 @@
+package fi.tranquil;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class IdListTest {
+
+  @BeforeClass
+  public static void generateModels() throws IOException {
+    models = GeneratedModels.compile("-AprimitiveIdLists=true");
+  }
+
+  @AfterClass
+  public static void closeModels() throws IOException {
+    models.close();
+  }
+
+  @Test
+  public void testLongIdListContract() throws ReflectiveOperationException {
+    assertListContract("LongIdList", 1l, 2l, 3l, 4l);
+  }
+
+  @Test
+  public void testIntIdListContract() throws ReflectiveOperationException {
+    assertListContract("IntIdList", 1, 2, 3, 4);
+  }
+
+  @Test
+  public void testNullIdsAreRejected() throws ReflectiveOperationException {
+    for (Object id : Arrays.<Object>asList(1l, 1)) {
+      List<Object> ids = createList(id instanceof Long ? "LongIdList" : "IntIdList");
+      ids.add(id);
+      
+      try {
+        ids.add(null);
+        fail("Null id was added");
+      } catch (NullPointerException e) {
+      }
+      
+      try {
+        ids.add(0, null);
+        fail("Null id was inserted");
+      } catch (NullPointerException e) {
+      }
+      
+      try {
+        ids.set(0, null);
+        fail("Null id was set");
+      } catch (NullPointerException e) {
+      }
+      
+      assertEquals(Collections.singletonList(id), ids);
+    }
+  }
+
+  @Test
+  public void testIndexBounds() throws ReflectiveOperationException {
+    List<Object> ids = createList("LongIdList");
+    ids.add(1l);
+    
+    for (int index : new int[] { -1, 1 }) {
+      try {
+        ids.get(index);
+        fail("Got index " + index);
+      } catch (IndexOutOfBoundsException e) {
+      }
+      
+      try {
+        ids.set(index, 2l);
+        fail("Set index " + index);
+      } catch (IndexOutOfBoundsException e) {
+      }
+      
+      try {
+        ids.remove(index);
+        fail("Removed index " + index);
+      } catch (IndexOutOfBoundsException e) {
+      }
+    }
+    
+    try {
+      ids.add(2, 2l);
+      fail("Inserted past the end");
+    } catch (IndexOutOfBoundsException e) {
+    }
+    
+    ids.add(1, 2l);
+    assertEquals(Arrays.asList(1l, 2l), ids);
+  }
+
+  @Test(expected = ConcurrentModificationException.class)
+  public void testIteratorFailsFast() throws ReflectiveOperationException {
+    List<Object> ids = createList("LongIdList");
+    ids.addAll(Arrays.asList(1l, 2l));
+    for (Object id : ids) {
+      ids.add(id);
+    }
+  }
+
+  @Test
+  public void testPrimitiveAccess() throws ReflectiveOperationException {
+    List<Object> longIds = createList("LongIdList");
+    models.invoke(longIds, "addLong", 5l);
+    longIds.add(6l);
+    assertEquals(6l, models.invoke(longIds, "getLong", 1));
+    assertArrayEquals(new long[] { 5l, 6l }, (long[]) models.invoke(longIds, "toLongArray"));
+    
+    List<Object> intIds = createList("IntIdList");
+    models.invoke(intIds, "addInt", 5);
+    intIds.add(6);
+    assertEquals(6, models.invoke(intIds, "getInt", 1));
+    assertArrayEquals(new int[] { 5, 6 }, (int[]) models.invoke(intIds, "toIntArray"));
+  }
+
+  @Test
+  public void testCopyOfAndAppend() throws ReflectiveOperationException {
+    Class<?> listClass = models.loadSupportClass("LongIdList");
+    
+    Object copy = models.invokeStatic(listClass, "copyOf", Arrays.asList(1, 2l));
+    assertSame(listClass, copy.getClass());
+    assertEquals(Arrays.asList(1l, 2l), copy);
+    assertSame(copy, models.invokeStatic(listClass, "copyOf", copy));
+    
+    Object withNull = models.invokeStatic(listClass, "copyOf", Arrays.asList(1l, null));
+    assertSame(ArrayList.class, withNull.getClass());
+    assertEquals(Arrays.asList(1l, null), withNull);
+    
+    Object appended = models.invokeStatic(listClass, "append", copy, 3l);
+    assertSame(copy, appended);
+    appended = models.invokeStatic(listClass, "append", copy, null);
+    assertSame(ArrayList.class, appended.getClass());
+    assertEquals(Arrays.asList(1l, 2l, 3l, null), appended);
+  }
+
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  private void assertListContract(String className, Object first, Object second, Object third, Object fourth) throws ReflectiveOperationException {
+    List<Object> ids = createList(className);
+    List<Object> expected = new ArrayList<Object>();
+    
+    for (List<Object> list : Arrays.asList(ids, expected)) {
+      list.add(third);
+      list.add(0, first);
+      list.add(1, second);
+      list.addAll(Arrays.asList(fourth, first));
+    }
+    
+    assertEquals(expected, ids);
+    assertEquals(ids, expected);
+    assertEquals(expected.hashCode(), ids.hashCode());
+    assertEquals(expected.toString(), ids.toString());
+    assertEquals(5, ids.size());
+    assertEquals(0, ids.indexOf(first));
+    assertEquals(4, ids.lastIndexOf(first));
+    assertTrue(ids.contains(fourth));
+    assertFalse(ids.contains(String.valueOf(first)));
+    
+    assertEquals(second, ids.set(1, fourth));
+    assertEquals(first, ids.remove(0));
+    assertTrue(ids.remove(first));
+    assertEquals(Arrays.asList(fourth, third, fourth), ids);
+    
+    Collections.sort((List) ids);
+    assertEquals(Arrays.asList(third, fourth, fourth), ids);
+    
+    Iterator<Object> iterator = ids.iterator();
+    iterator.next();
+    iterator.remove();
+    assertEquals(Arrays.asList(fourth, fourth), ids);
+    
+    ids.subList(0, 1).clear();
+    assertEquals(Arrays.asList(fourth), ids);
+    
+    ids.clear();
+    assertTrue(ids.isEmpty());
+    ids.add(second);
+    assertEquals(Arrays.asList(second), ids);
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<Object> createList(String className) throws ReflectiveOperationException {
+    return (List<Object>) models.newInstance(models.loadSupportClass(className));
+  }
+
+  private static GeneratedModels models;
+}
@@ -0,0 +1,129 @@
+package fi.tranquil;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ResetTest {
+
+  @BeforeClass
+  public static void generateModels() throws IOException {
+    models = GeneratedModels.compile("-AgenerateMappers=true", "-AgenerateReset=true", "-AprimitiveIdLists=true");
+  }
+
+  @AfterClass
+  public static void closeModels() throws IOException {
+    models.close();
+  }
+
+  @Test
+  public void testResetClearsProperties() throws ReflectiveOperationException {
+    Object compact = models.invokeStatic("ProjectMapper", "toCompact", createProject(1l, 2l));
+    
+    models.invoke(compact, "reset");
+    assertNull(models.invoke(compact, "getId"));
+    assertNull(models.invoke(compact, "getVersion"));
+    assertNull(models.invoke(compact, "getName"));
+    assertNull(models.invoke(compact, "getPriority"));
+    assertNull(models.invoke(compact, "getTags"));
+    assertNull(models.invoke(compact, "getTasks_ids"));
+    assertEquals(Boolean.FALSE, models.invoke(compact, "getArchived"));
+    
+    Object complete = models.invokeStatic("ProjectMapper", "toComplete", createProject(1l, 2l));
+    models.invoke(complete, "reset");
+    assertNull(models.invoke(complete, "getName"));
+    assertNull(models.invoke(complete, "getTasks"));
+  }
+
+  @Test
+  public void testPoolReusesModels() throws ReflectiveOperationException {
+    Object pool = createPool("ProjectCompact", 1);
+    Object first = models.invoke(pool, "acquire");
+    Object second = models.invoke(pool, "acquire");
+    assertNotSame(first, second);
+    
+    models.invoke(pool, "release", first);
+    models.invoke(pool, "release", second);
+    assertSame(first, models.invoke(pool, "acquire"));
+    assertNotSame(second, models.invoke(pool, "acquire"));
+  }
+
+  @Test
+  public void testOwnedListIsReused() throws ReflectiveOperationException {
+    Object pool = createPool("ProjectCompact", 1);
+    
+    Object compact = models.invoke(pool, "acquire");
+    models.invokeStatic("ProjectMapper", "populateCompact", createProject(1l, 2l), compact);
+    Object ids = models.invoke(compact, "getTasks_ids");
+    assertEquals(Arrays.asList(1l, 2l), ids);
+    models.invoke(pool, "release", compact);
+    
+    compact = models.invoke(pool, "acquire");
+    models.invokeStatic("ProjectMapper", "populateCompact", createProject(3l), compact);
+    assertSame(ids, models.invoke(compact, "getTasks_ids"));
+    assertEquals(Arrays.asList(3l), ids);
+  }
+
+  @Test
+  public void testOwnedCompleteListIsReused() throws ReflectiveOperationException {
+    Object complete = models.invokeStatic("ProjectMapper", "toComplete", createProject(1l, 2l));
+    Object tasks = models.invoke(complete, "getTasks");
+    
+    models.invoke(complete, "reset");
+    models.invokeStatic("ProjectMapper", "populateComplete", createProject(3l), complete);
+    assertSame(tasks, models.invoke(complete, "getTasks"));
+    assertEquals(1, ((List<?>) tasks).size());
+  }
+
+  @Test
+  public void testCallerListIsNotReused() throws ReflectiveOperationException {
+    Object pool = createPool("ProjectCompact", 1);
+    List<Long> ids = new ArrayList<Long>(Arrays.asList(7l, 8l));
+    
+    Object compact = models.invoke(pool, "acquire");
+    models.invoke(compact, "setTasks_ids", ids);
+    models.invoke(pool, "release", compact);
+    
+    compact = models.invoke(pool, "acquire");
+    models.invokeStatic("ProjectMapper", "populateCompact", createProject(9l), compact);
+    assertEquals(Arrays.asList(7l, 8l), ids);
+    assertNotSame(ids, models.invoke(compact, "getTasks_ids"));
+    assertEquals(Arrays.asList(9l), models.invoke(compact, "getTasks_ids"));
+  }
+
+  private Object createPool(String className, int capacity) throws ReflectiveOperationException {
+    return models.newInstance(models.loadSupportClass("ModelPool"), models.loadClass(className), capacity);
+  }
+
+  private Object createProject(Long... taskIds) throws ReflectiveOperationException {
+    List<Object> tasks = new ArrayList<Object>();
+    for (Long taskId : taskIds) {
+      Object task = models.newInstance("Task");
+      models.invoke(task, "setId", taskId);
+      tasks.add(task);
+    }
+    
+    Object project = models.newInstance("Project");
+    models.invoke(project, "setId", 1l);
+    models.invoke(project, "setVersion", 2l);
+    models.invoke(project, "setName", "Project");
+    models.invoke(project, "setPriority", 4);
+    models.invoke(project, "setArchived", true);
+    models.invoke(project, "setTags", new LinkedHashSet<String>(Arrays.asList("tag")));
+    models.invoke(project, "setTasks", tasks);
+    return project;
+  }
+
+  private static GeneratedModels models;
+}
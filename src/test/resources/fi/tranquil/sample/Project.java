@@ -0,0 +1,60 @@
+package fi.tranquil.sample;
+
+import java.util.List;
+import java.util.Set;
+
+import javax.persistence.Entity;
+
+@Entity
+public class Project extends AbstractEntity {
+
+  public String getName() {
+    return name;
+  }
+
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  public Integer getPriority() {
+    return priority;
+  }
+
+  public void setPriority(Integer priority) {
+    this.priority = priority;
+  }
+
+  public boolean getArchived() {
+    return archived;
+  }
+
+  public void setArchived(boolean archived) {
+    this.archived = archived;
+  }
+
+  public Set<String> getTags() {
+    return tags;
+  }
+
+  public void setTags(Set<String> tags) {
+    this.tags = tags;
+  }
+
+  public List<Task> getTasks() {
+    return tasks;
+  }
+
+  public void setTasks(List<Task> tasks) {
+    this.tasks = tasks;
+  }
+
+  private String name;
+
+  private Integer priority;
+
+  private boolean archived;
+
+  private Set<String> tags;
+
+  private List<Task> tasks;
+}
@@ -0,0 +1,27 @@
+package fi.tranquil.sample;
+
+import javax.persistence.Entity;
+
+@Entity
+public class Task extends AbstractEntity {
+
+  public String getTitle() {
+    return title;
+  }
+
+  public void setTitle(String title) {
+    this.title = title;
+  }
+
+  public Project getProject() {
+    return project;
+  }
+
+  public void setProject(Project project) {
+    this.project = project;
+  }
+
+  private String title;
+
+  private Project project;
+}